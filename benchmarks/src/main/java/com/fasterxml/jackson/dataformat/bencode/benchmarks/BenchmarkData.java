@@ -0,0 +1,32 @@
+package com.fasterxml.jackson.dataformat.bencode.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeMapper;
+import com.fasterxml.jackson.dataformat.bencode.TestUtils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Benchmark input, taken from the test jar; JSON counterparts are produced by binding the bencoded document and
+ * writing it back as JSON, so both sides carry the same data.
+ */
+final class BenchmarkData {
+    static final String UBUNTU_TORRENT = "ubuntu-13.10-desktop-amd64.iso.torrent";
+    static final String GET_STARTED_TORRENT = "GET-STARTED.torrent";
+
+    private BenchmarkData() {
+    }
+
+    static byte[] resource(String name) {
+        return TestUtils.readFileBinary("/" + name);
+    }
+
+    static byte[] user() {
+        return TestUtils.TUTORIAL_EXAMPLE_ENCODED.getBytes(Charset.forName("ISO-8859-1"));
+    }
+
+    static byte[] toJson(byte[] bencoded, Class<?> type) throws IOException {
+        return new ObjectMapper().writeValueAsBytes(new BEncodeMapper().readValue(bencoded, type));
+    }
+}
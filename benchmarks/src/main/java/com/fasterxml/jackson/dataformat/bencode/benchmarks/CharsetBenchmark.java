@@ -0,0 +1,101 @@
+package com.fasterxml.jackson.dataformat.bencode.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.bencode.util.CharsetUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UTF-8 detection of {@link CharsetUtils#isUTF8(byte[])} against a strict JDK decoder and, for text payloads, against
+ * jackson-core decoding the same bytes as a JSON string value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CharsetBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int SIZE = 4096;
+
+    @Param({"ascii", "multibyte", "binary"})
+    public String payload;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CharsetDecoder decoder = UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private byte[] bytes;
+    private byte[] quoted;
+
+    @Setup
+    public void setUp() {
+        if (payload.equals("binary")) {
+            bytes = new byte[SIZE];
+            new Random(SIZE).nextBytes(bytes);
+        } else {
+            String sample = payload.equals("ascii") ? "announce-list piece length " :
+                    "árvíztűrő tükörfúrógép ✓ 😀 ";
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < SIZE) {
+                sb.append(sample);
+            }
+            bytes = sb.toString().getBytes(UTF_8);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + 2);
+        out.write('"');
+        out.write(bytes, 0, bytes.length);
+        out.write('"');
+        quoted = out.toByteArray();
+    }
+
+    @Benchmark
+    public boolean bencode() {
+        return CharsetUtils.isUTF8(bytes);
+    }
+
+    @Benchmark
+    public boolean jdkDecoder() {
+        try {
+            decoder.reset().decode(ByteBuffer.wrap(bytes));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Random bytes are not a valid JSON string, so this only makes sense for text payloads.
+     */
+    @Benchmark
+    public int json() throws IOException {
+        if (payload.equals("binary")) {
+            return -1;
+        }
+        try (JsonParser parser = jsonFactory.createParser(quoted)) {
+            parser.nextToken();
+            return parser.getTextLength();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.fasterxml.jackson.dataformat.bencode.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeMapper;
+import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
+import com.fasterxml.jackson.dataformat.bencode.types.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full data binding of the test types, both directions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DataBindBenchmark {
+    @Param({BenchmarkData.UBUNTU_TORRENT, BenchmarkData.GET_STARTED_TORRENT})
+    public String document;
+
+    private final ObjectMapper bencodeMapper = new BEncodeMapper();
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private byte[] torrentBencode;
+    private byte[] torrentJson;
+    private Torrent torrent;
+    private byte[] userBencode;
+    private byte[] userJson;
+    private User user;
+
+    @Setup
+    public void setUp() throws IOException {
+        torrentBencode = BenchmarkData.resource(document);
+        torrentJson = BenchmarkData.toJson(torrentBencode, Torrent.class);
+        torrent = bencodeMapper.readValue(torrentBencode, Torrent.class);
+        userBencode = BenchmarkData.user();
+        userJson = BenchmarkData.toJson(userBencode, User.class);
+        user = bencodeMapper.readValue(userBencode, User.class);
+    }
+
+    @Benchmark
+    public Torrent bencodeReadTorrent() throws IOException {
+        return bencodeMapper.readValue(torrentBencode, Torrent.class);
+    }
+
+    @Benchmark
+    public Torrent jsonReadTorrent() throws IOException {
+        return jsonMapper.readValue(torrentJson, Torrent.class);
+    }
+
+    @Benchmark
+    public byte[] bencodeWriteTorrent() throws IOException {
+        return bencodeMapper.writeValueAsBytes(torrent);
+    }
+
+    @Benchmark
+    public byte[] jsonWriteTorrent() throws IOException {
+        return jsonMapper.writeValueAsBytes(torrent);
+    }
+
+    @Benchmark
+    public User bencodeReadUser() throws IOException {
+        return bencodeMapper.readValue(userBencode, User.class);
+    }
+
+    @Benchmark
+    public User jsonReadUser() throws IOException {
+        return jsonMapper.readValue(userJson, User.class);
+    }
+
+    @Benchmark
+    public byte[] bencodeWriteUser() throws IOException {
+        return bencodeMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] jsonWriteUser() throws IOException {
+        return jsonMapper.writeValueAsBytes(user);
+    }
+}
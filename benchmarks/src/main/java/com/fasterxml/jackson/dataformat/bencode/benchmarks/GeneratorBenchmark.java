@@ -0,0 +1,113 @@
+package com.fasterxml.jackson.dataformat.bencode.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeFactory;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming generator throughput on a multi-file torrent written token by token, with and without
+ * {@link BEncodeGenerator.Feature#VALIDATE_STRUCTURE}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GeneratorBenchmark {
+    @Param({"10", "1000"})
+    public int files;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+    private String[] names;
+    private long[] lengths;
+    private byte[] pieces;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(files);
+        names = new String[files];
+        lengths = new long[files];
+        for (int i = 0; i < files; i++) {
+            names[i] = "file-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + ".bin";
+            lengths[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+        pieces = new byte[20 * files];
+        random.nextBytes(pieces);
+    }
+
+    /**
+     * Bencode only settings, so that the JSON baseline is not run once per value.
+     */
+    @State(Scope.Benchmark)
+    public static class BEncode {
+        @Param({"true", "false"})
+        public boolean validate;
+
+        private final BEncodeFactory factory = new BEncodeFactory();
+
+        @Setup
+        public void setUp() {
+            factory.configure(BEncodeGenerator.Feature.VALIDATE_STRUCTURE, validate);
+        }
+    }
+
+    @Benchmark
+    public int bencode(BEncode bencode) throws IOException {
+        out.reset();
+        write(bencode.factory.createGenerator(out));
+        return out.size();
+    }
+
+    @Benchmark
+    public int json() throws IOException {
+        out.reset();
+        write(jsonFactory.createGenerator(out));
+        return out.size();
+    }
+
+    /**
+     * Keys are written in bencode order, so both formats produce the same document.
+     */
+    private void write(JsonGenerator g) throws IOException {
+        try (JsonGenerator gen = g) {
+            gen.writeStartObject();
+            gen.writeFieldName("files");
+            gen.writeStartArray();
+            for (int i = 0; i < files; i++) {
+                gen.writeStartObject();
+                gen.writeNumberField("length", lengths[i]);
+                gen.writeFieldName("path");
+                gen.writeStartArray();
+                gen.writeString("data");
+                gen.writeString(names[i]);
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeStringField("name", "benchmark");
+            gen.writeNumberField("piece length", 262144);
+            gen.writeFieldName("pieces");
+            gen.writeBinary(pieces);
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.fasterxml.jackson.dataformat.bencode.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.bencode.context.StreamOutputContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Integer formatting of {@link StreamOutputContext} against {@link JsonGenerator#writeNumber(long)}, writing into a
+ * sink that discards everything so only formatting and buffering are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NumberFormatBenchmark {
+    private static final int COUNT = 1024;
+
+    /**
+     * Maximum number of decimal digits of the values.
+     */
+    @Param({"3", "10", "19"})
+    public int digits;
+
+    private final long[] values = new long[COUNT];
+    private StreamOutputContext context;
+    private JsonGenerator generator;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(digits);
+        long bound = digits == 19 ? Long.MAX_VALUE : (long) Math.pow(10, digits);
+        for (int i = 0; i < COUNT; i++) {
+            long v = (random.nextLong() & Long.MAX_VALUE) % bound;
+            values[i] = random.nextBoolean() ? v : -v;
+        }
+        context = new StreamOutputContext(new DiscardingOutputStream(), Charset.forName("UTF-8"));
+        generator = new JsonFactory().createGenerator(new DiscardingOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        generator.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void bencode() throws IOException {
+        for (long v : values) {
+            context.write(v);
+        }
+        context.flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void json() throws IOException {
+        for (long v : values) {
+            generator.writeNumber(v);
+        }
+        generator.flush();
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.fasterxml.jackson.dataformat.bencode.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeFactory;
+import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token streaming: bare token iteration, and iteration reading every scalar as text or number.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParserBenchmark {
+    @Param({BenchmarkData.UBUNTU_TORRENT, BenchmarkData.GET_STARTED_TORRENT})
+    public String document;
+
+    private final BEncodeFactory bencodeFactory = new BEncodeFactory();
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private byte[] bencode;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        bencode = BenchmarkData.resource(document);
+        json = BenchmarkData.toJson(bencode, Torrent.class);
+    }
+
+    @Benchmark
+    public int bencodeTokens() throws IOException {
+        return tokens(bencodeFactory.createParser(bencode));
+    }
+
+    @Benchmark
+    public int jsonTokens() throws IOException {
+        return tokens(jsonFactory.createParser(json));
+    }
+
+    @Benchmark
+    public void bencodeValues(Blackhole bh) throws IOException {
+        values(bencodeFactory.createParser(bencode), bh);
+    }
+
+    @Benchmark
+    public void jsonValues(Blackhole bh) throws IOException {
+        values(jsonFactory.createParser(json), bh);
+    }
+
+    private static int tokens(JsonParser p) throws IOException {
+        int count = 0;
+        try (JsonParser parser = p) {
+            while (parser.nextToken() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void values(JsonParser p, Blackhole bh) throws IOException {
+        try (JsonParser parser = p) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case FIELD_NAME:
+                        bh.consume(parser.getCurrentName());
+                        break;
+                    case VALUE_STRING:
+                        bh.consume(parser.getText());
+                        break;
+                    case VALUE_NUMBER_INT:
+                        bh.consume(parser.getLongValue());
+                        break;
+                    default:
+                        bh.consume(token);
+                }
+            }
+        }
+    }
+}
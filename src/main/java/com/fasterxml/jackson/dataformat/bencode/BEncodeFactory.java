@@ -3,10 +3,18 @@ package com.fasterxml.jackson.dataformat.bencode;
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.core.format.InputAccessor;
 import com.fasterxml.jackson.core.format.MatchStrength;
+import com.fasterxml.jackson.dataformat.bencode.context.ByteBufferOutputContext;
+import com.fasterxml.jackson.dataformat.bencode.context.ChannelOutputContext;
+import com.fasterxml.jackson.dataformat.bencode.context.ChunkedOutputContext;
+import com.fasterxml.jackson.dataformat.bencode.context.OutputContext;
 import com.fasterxml.jackson.dataformat.bencode.context.StreamOutputContext;
+import com.fasterxml.jackson.dataformat.bencode.location.Location;
+import com.fasterxml.jackson.dataformat.bencode.util.ByteBufferInputStream;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 
 public class BEncodeFactory extends JsonFactory {
@@ -16,6 +24,13 @@ public class BEncodeFactory extends JsonFactory {
      */
     public final static String FORMAT_NAME_JSON = "BEncode";
 
+    /**
+     * Bitfield (set of flags) of all generator features that are enabled by default.
+     */
+    protected final static int DEFAULT_BENCODE_GENERATOR_FEATURE_FLAGS = BEncodeGenerator.Feature.collectDefaults();
+
+    protected int _formatGeneratorFeatures = DEFAULT_BENCODE_GENERATOR_FEATURE_FLAGS;
+
     public BEncodeFactory() {
         this(null);
     }
@@ -26,6 +41,34 @@ public class BEncodeFactory extends JsonFactory {
 
     public BEncodeFactory(BEncodeFactory src, ObjectCodec codec) {
         super(src, codec);
+        _formatGeneratorFeatures = src._formatGeneratorFeatures;
+    }
+
+    public final BEncodeFactory configure(BEncodeGenerator.Feature f, boolean state) {
+        return state ? enable(f) : disable(f);
+    }
+
+    public BEncodeFactory enable(BEncodeGenerator.Feature f) {
+        _formatGeneratorFeatures |= f.getMask();
+        return this;
+    }
+
+    public BEncodeFactory disable(BEncodeGenerator.Feature f) {
+        _formatGeneratorFeatures &= ~f.getMask();
+        return this;
+    }
+
+    public final boolean isEnabled(BEncodeGenerator.Feature f) {
+        return (_formatGeneratorFeatures & f.getMask()) != 0;
+    }
+
+    public int getFormatGeneratorFeatures() {
+        return _formatGeneratorFeatures;
+    }
+
+    @Override
+    public Class<BEncodeGenerator.Feature> getFormatWriteFeatureType() {
+        return BEncodeGenerator.Feature.class;
     }
 
     @Override
@@ -54,13 +97,13 @@ public class BEncodeFactory extends JsonFactory {
         return FORMAT_NAME_JSON;
     }
 
+    /**
+     * Checks the start of the first value, for dictionaries including the first key and the start of its value,
+     * examining at most {@value BEncodeFormatDetector#PREFIX_LIMIT} bytes.
+     */
     @Override
     public MatchStrength hasFormat(InputAccessor acc) throws IOException {
-        // TODO implement according to com.fasterxml.jackson.core.json.ByteSourceJsonBootstrapper.hasJSONFormat()
-        return MatchStrength.INCONCLUSIVE;
-//        if (!acc.hasMoreBytes()) {
-//            return MatchStrength.INCONCLUSIVE;
-//        }
+        return BEncodeFormatDetector.hasBEncodeFormat(acc);
     }
 
     @Override
@@ -70,7 +113,8 @@ public class BEncodeFactory extends JsonFactory {
 
     @Override
     public BEncodeGenerator createGenerator(OutputStream out, JsonEncoding enc) throws IOException {
-        return new BEncodeGenerator(0, _objectCodec, new StreamOutputContext(out, Charset.forName(enc.getJavaName()))); // TODO handle features
+        return _createBEncodeGenerator(new StreamOutputContext(
+                out, Charset.forName(enc.getJavaName()), _getBufferRecycler()));
     }
 
     @Override
@@ -78,6 +122,32 @@ public class BEncodeFactory extends JsonFactory {
         return createGenerator(out, JsonEncoding.UTF8);
     }
 
+    /**
+     * Creates a generator writing into {@code buffer} from its position on, growing it if needed. The buffer holding
+     * the output is available via {@link ByteBufferOutputContext#getByteBuffer()} of the generator's output target.
+     */
+    public BEncodeGenerator createGenerator(ByteBuffer buffer) throws IOException {
+        return _createBEncodeGenerator(new ByteBufferOutputContext(buffer, BEncodeFormat.UTF_8));
+    }
+
+    public BEncodeGenerator createGenerator(WritableByteChannel channel) throws IOException {
+        return _createBEncodeGenerator(new ChannelOutputContext(channel, BEncodeFormat.UTF_8, _getBufferRecycler()));
+    }
+
+    /**
+     * Creates a generator emitting chunks of at most {@code chunkSize} bytes to {@code subscriber}, blocking while it
+     * signals no demand; see {@link ChunkedOutputContext}. Note that {@link BEncodeGenerator.Feature#SORT_KEYS}
+     * stages every top level dictionary in memory before it is emitted.
+     */
+    public BEncodeGenerator createGenerator(ChunkedOutputContext.Subscriber subscriber, int chunkSize) {
+        return _createBEncodeGenerator(new ChunkedOutputContext(subscriber, chunkSize, BEncodeFormat.UTF_8));
+    }
+
+    protected BEncodeGenerator _createBEncodeGenerator(OutputContext outputContext) {
+        return new BEncodeGenerator(
+                _generatorFeatures, _formatGeneratorFeatures, _objectCodec, outputContext, _getBufferRecycler());
+    }
+
     @Override
     public BEncodeGenerator createGenerator(Writer out) throws IOException {
         throw new UnsupportedOperationException("BEncode doesn't support writer");
@@ -86,7 +156,7 @@ public class BEncodeFactory extends JsonFactory {
     @Override
     public BEncodeGenerator createGenerator(File f, JsonEncoding enc) throws IOException {
         OutputStream os = new FileOutputStream(f); // , enc.getJavaName())
-        return createGenerator(os, enc);
+        return createGenerator(os, enc).manageTarget();
     }
 
     @Override
@@ -110,7 +180,7 @@ public class BEncodeFactory extends JsonFactory {
 
     @Override
     public JsonParser createParser(byte[] data, int offset, int len) throws IOException {
-        return createParser(new ByteArrayInputStream(data, offset, len));
+        return new BEncodeParser(data, offset, len, _objectCodec, false, new Location());
     }
 
     @Override
@@ -122,4 +192,25 @@ public class BEncodeFactory extends JsonFactory {
     public JsonParser createParser(byte[] data) throws IOException {
         return createParser(data, 0, data.length);
     }
+
+    /**
+     * Creates a parser for a single value at the start of {@code data[offset, offset + len)}, followed by unrelated
+     * content such as the raw payload of BEP 9 metadata messages. Parsing ends with the value, and {@link
+     * BEncodeParser#getConsumedBytes()} tells where it ended.
+     */
+    public BEncodeParser createEmbeddedParser(byte[] data, int offset, int len) {
+        return new BEncodeParser(data, offset, len, _objectCodec, true, new Location());
+    }
+
+    /**
+     * Same as {@link #createEmbeddedParser(byte[], int, int)} for the remaining content of {@code buffer}, whose
+     * position is left unchanged.
+     */
+    public BEncodeParser createEmbeddedParser(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return createEmbeddedParser(
+                    buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return new BEncodeParser(new ByteBufferInputStream(buffer), _objectCodec, true);
+    }
 }
@@ -0,0 +1,222 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.format.InputAccessor;
+import com.fasterxml.jackson.core.format.MatchStrength;
+
+import java.io.IOException;
+
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.*;
+
+/**
+ * Format auto-detection on a bounded prefix of the input: the start of the first value is checked structurally. Only
+ * a complete first element counts as solid evidence: a whole integer or string, the first element of a list, or the
+ * first key of a dictionary along with the start of its value. Empty containers and bare length headers are too
+ * common at the start of plain text ("delete", "2:30pm") to be more than a weak match. Nested content is not
+ * followed, as format detectors only buffer a short prefix.
+ */
+final class BEncodeFormatDetector {
+    /**
+     * Maximum number of bytes examined.
+     */
+    static final int PREFIX_LIMIT = 64;
+
+    private static final int MAX_LENGTH_DIGITS = 10;
+
+    private static final int SOLID = 2;
+    private static final int WEAK = 1;
+    /**
+     * Input ended within a length prefix.
+     */
+    private static final int INCOMPLETE = 0;
+    private static final int INVALID = -1;
+
+    private static final int NO_LENGTH = -1;
+    private static final int LENGTH_CUT_OFF = -2;
+
+    private final InputAccessor acc;
+    private int budget = PREFIX_LIMIT;
+    private int depth;
+    /**
+     * Whether the root value has been read completely.
+     */
+    private boolean rootDone;
+
+    private BEncodeFormatDetector(InputAccessor acc) {
+        this.acc = acc;
+    }
+
+    static MatchStrength hasBEncodeFormat(InputAccessor acc) throws IOException {
+        if (!acc.hasMoreBytes()) {
+            return MatchStrength.INCONCLUSIVE;
+        }
+        BEncodeFormatDetector detector = new BEncodeFormatDetector(acc);
+        int first = detector.next();
+        int result = detector.value(first);
+        // a short value followed by text is text, "2:30pm" or "lemon"
+        if (result > INCOMPLETE && detector.rootDone && detector.more() && !isValueStart(detector.next())) {
+            result = INVALID;
+        }
+        switch (result) {
+            case SOLID:
+                return MatchStrength.SOLID_MATCH;
+            case WEAK:
+                return MatchStrength.WEAK_MATCH;
+            case INCOMPLETE:
+                // bare digits might just as well be a JSON number
+                return isDigit(first) ? MatchStrength.INCONCLUSIVE : MatchStrength.WEAK_MATCH;
+            default:
+                return MatchStrength.NO_MATCH;
+        }
+    }
+
+    private boolean more() throws IOException {
+        return budget > 0 && acc.hasMoreBytes();
+    }
+
+    private int next() throws IOException {
+        budget--;
+        return acc.nextByte() & 0xff;
+    }
+
+    private static boolean isDigit(int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isValueStart(int b) {
+        return b == INTEGER_PREFIX || b == LIST_PREFIX || b == DICTIONARY_PREFIX || isDigit(b);
+    }
+
+    /**
+     * Marks the end of a value; for the root value, following input is checked by the caller.
+     */
+    private int done(int result) {
+        rootDone = depth == 0;
+        return result;
+    }
+
+    /**
+     * @param b first byte of the value
+     */
+    private int value(int b) throws IOException {
+        switch (b) {
+            case INTEGER_PREFIX:
+                return integer();
+            case LIST_PREFIX:
+                return container(false);
+            case DICTIONARY_PREFIX:
+                return container(true);
+            default:
+                return isDigit(b) ? string(b) : INVALID;
+        }
+    }
+
+    private int integer() throws IOException {
+        if (!more()) {
+            return WEAK;
+        }
+        int b = next();
+        final boolean negative = b == '-';
+        if (negative) {
+            if (!more()) {
+                return WEAK;
+            }
+            b = next();
+        }
+        if (!isDigit(b) || negative && b == '0') {
+            return INVALID;
+        }
+        final boolean zero = b == '0';
+        while (true) {
+            if (!more()) {
+                return WEAK;
+            }
+            b = next();
+            if (b == END_SUFFIX) {
+                return done(SOLID);
+            }
+            if (!isDigit(b) || zero) {
+                return INVALID;
+            }
+        }
+    }
+
+    /**
+     * Reads the length prefix of a byte string up to and including the separator.
+     *
+     * @return length, {@link #NO_LENGTH} if malformed or {@link #LENGTH_CUT_OFF} if the prefix ended
+     */
+    private int length(int b) throws IOException {
+        long len = b - '0';
+        for (int digits = 1; ; digits++) {
+            if (!more()) {
+                return LENGTH_CUT_OFF;
+            }
+            b = next();
+            if (b == STRING_SEPARATOR) {
+                return (int) len;
+            }
+            if (!isDigit(b) || len == 0 || digits == MAX_LENGTH_DIGITS) {
+                return NO_LENGTH;
+            }
+            len = len * 10 + b - '0';
+            if (len > Integer.MAX_VALUE) {
+                return NO_LENGTH;
+            }
+        }
+    }
+
+    /**
+     * @return whether all {@code len} payload bytes are within the prefix
+     */
+    private boolean payload(int len) throws IOException {
+        for (int i = 0; i < len; i++) {
+            if (!more()) {
+                return false;
+            }
+            next();
+        }
+        return true;
+    }
+
+    private int string(int b) throws IOException {
+        final int len = length(b);
+        if (len == NO_LENGTH) {
+            return INVALID;
+        }
+        if (len == LENGTH_CUT_OFF) {
+            return INCOMPLETE;
+        }
+        return payload(len) ? done(SOLID) : WEAK;
+    }
+
+    private int container(boolean dictionary) throws IOException {
+        if (!more()) {
+            return WEAK;
+        }
+        int b = next();
+        if (b == END_SUFFIX) {
+            return done(WEAK);
+        }
+        depth++;
+        try {
+            if (!dictionary) {
+                final int first = value(b);
+                return first == INCOMPLETE ? WEAK : first;
+            }
+            if (!isDigit(b)) {
+                return INVALID;
+            }
+            final int len = length(b);
+            if (len == NO_LENGTH) {
+                return INVALID;
+            }
+            if (len == LENGTH_CUT_OFF || !payload(len) || !more()) {
+                return WEAK;
+            }
+            // key content is arbitrary, its value must start properly
+            return isValueStart(next()) ? SOLID : INVALID;
+        } finally {
+            depth--;
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
 import com.fasterxml.jackson.core.*;
-import com.fasterxml.jackson.dataformat.bencode.context.BContext;
-import com.fasterxml.jackson.dataformat.bencode.context.StreamOutputContext;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.dataformat.bencode.context.BContextStack;
+import com.fasterxml.jackson.dataformat.bencode.context.OutputContext;
+import com.fasterxml.jackson.dataformat.bencode.context.SortingOutputContext;
+import com.fasterxml.jackson.dataformat.bencode.util.SpoolBuffer;
+import com.fasterxml.jackson.dataformat.bencode.util.Utf8;
+import com.fasterxml.jackson.dataformat.bencode.util.ValueScanner;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.CharBuffer;
 
 import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.*;
 
@@ -15,61 +21,189 @@ import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.*;
  * Writer Based
  */
 public class BEncodeGenerator extends JsonGenerator {
-    private final StreamOutputContext outputContext;
-    private BContext ctx;
+    /**
+     * Enumeration that defines all togglable features for BEncode generators.
+     */
+    public enum Feature implements FormatFeature {
+        /**
+         * Feature that allows dictionary keys to be written in any order: entries of dictionaries are buffered and
+         * emitted sorted by their raw key bytes when the dictionary is closed. Keys arriving in ascending order are
+         * detected and are not reordered.
+         */
+        SORT_KEYS(false),
+
+        /**
+         * Feature that controls whether the written structure is validated: dictionary keys must be unique and
+         * ascending, every key must be followed by a value and raw values must be well-formed. Disabling it removes
+         * the checks for writers known to produce correct output, like generated serializers; malformed output is
+         * then written as is. Should not be changed while a document is being written.
+         */
+        VALIDATE_STRUCTURE(true);
+
+        private final boolean defaultState;
+        private final int mask;
+
+        /**
+         * Method that calculates bit set (flags) of all features that are enabled by default.
+         */
+        public static int collectDefaults() {
+            int flags = 0;
+            for (Feature f : values()) {
+                if (f.enabledByDefault()) {
+                    flags |= f.getMask();
+                }
+            }
+            return flags;
+        }
+
+        Feature(boolean defaultState) {
+            this.defaultState = defaultState;
+            mask = (1 << ordinal());
+        }
+
+        @Override
+        public boolean enabledByDefault() {
+            return defaultState;
+        }
+
+        @Override
+        public int getMask() {
+            return mask;
+        }
+
+        @Override
+        public boolean enabledIn(int flags) {
+            return (flags & mask) != 0;
+        }
+    }
+
+    private final OutputContext outputContext;
+    private final BufferRecycler bufferRecycler;
+    private final boolean utf8;
+    private int features;
+    private ObjectCodec codec;
+    private OutputContext out;
+    private SortingOutputContext sorter;
+    private int formatFeatures;
+    /**
+     * Whether the target was opened by the factory, and is closed regardless of {@link
+     * JsonGenerator.Feature#AUTO_CLOSE_TARGET}.
+     */
+    private boolean targetManaged;
+    private boolean closed;
+    private final BContextStack ctx = new BContextStack();
+
+    /**
+     * Binary content of unknown length is kept in memory up to this size, the rest is spooled to a temporary file.
+     */
+    static final int SPOOL_MEMORY_LIMIT = 1 << 20;
 
     private static final byte[] NULL_VALUE = ("4" + (char) STRING_SEPARATOR + "null").getBytes();
     private static final byte[] TRUE_VALUE = ("4" + (char) STRING_SEPARATOR + "true").getBytes();
     private static final byte[] FALSE_VALUE = ("5" + (char) STRING_SEPARATOR + "false").getBytes();
 
-    public BEncodeGenerator(int features, ObjectCodec codec, StreamOutputContext outputContext) {
-        ctx = new BContext();
+    public BEncodeGenerator(int features, ObjectCodec codec, OutputContext outputContext) {
+        this(features, Feature.collectDefaults(), codec, outputContext, null);
+    }
+
+    public BEncodeGenerator(int features, int formatFeatures, ObjectCodec codec, OutputContext outputContext,
+                            BufferRecycler bufferRecycler) {
+        this.features = features;
+        this.codec = codec;
+        this.formatFeatures = formatFeatures;
         this.outputContext = outputContext;
+        this.bufferRecycler = bufferRecycler;
+        utf8 = UTF_8.equals(outputContext.getCharset());
+        out = outputContext;
+    }
+
+    public BEncodeGenerator enable(Feature f) {
+        formatFeatures |= f.getMask();
+        return this;
+    }
+
+    public BEncodeGenerator disable(Feature f) {
+        formatFeatures &= ~f.getMask();
+        return this;
+    }
+
+    public final boolean isEnabled(Feature f) {
+        return (formatFeatures & f.getMask()) != 0;
+    }
+
+    public BEncodeGenerator configure(Feature f, boolean state) {
+        return state ? enable(f) : disable(f);
+    }
+
+    @Override
+    public int getFormatFeatures() {
+        return formatFeatures;
+    }
+
+    @Override
+    public JsonGenerator overrideFormatFeatures(int values, int mask) {
+        formatFeatures = (formatFeatures & ~mask) | (values & mask);
+        return this;
     }
 
     @Override
     public Object getOutputTarget() {
-        return null; // TODO implement
+        return outputContext;
     }
 
     @Override
     public JsonGenerator setCodec(ObjectCodec oc) {
-        return null;
+        codec = oc;
+        return this;
     }
 
     @Override
     public ObjectCodec getCodec() {
-        return null;
+        return codec;
     }
 
     @Override
     public Version version() {
-        return null;
+        return PackageVersion.VERSION;
     }
 
     @Override
-    public JsonGenerator enable(Feature f) {
-        return null;
+    public JsonGenerator enable(JsonGenerator.Feature f) {
+        features |= f.getMask();
+        return this;
     }
 
     @Override
-    public JsonGenerator disable(Feature f) {
-        return null;
+    public JsonGenerator disable(JsonGenerator.Feature f) {
+        features &= ~f.getMask();
+        return this;
     }
 
     @Override
-    public boolean isEnabled(Feature f) {
-        return false;
+    public boolean isEnabled(JsonGenerator.Feature f) {
+        return (features & f.getMask()) != 0;
     }
 
     @Override
     public int getFeatureMask() {
-        return 0;
+        return features;
     }
 
     @Override
+    @Deprecated
     public JsonGenerator setFeatureMask(int mask) {
-        return null;
+        features = mask;
+        return this;
+    }
+
+    @Override
+    public JsonGenerator overrideStdFeatures(int values, int mask) {
+        features = (features & ~mask) | (values & mask);
+        return this;
+    }
+
+    private boolean validating() {
+        return (formatFeatures & Feature.VALIDATE_STRUCTURE.getMask()) != 0;
     }
 
     @Override
@@ -79,7 +213,60 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public void writeFieldName(SerializableString name) throws IOException {
-        writeFieldName(name.getValue());
+        if (!UTF_8.equals(outputContext.getCharset())) {
+            writeFieldName(name.getValue());
+            return;
+        }
+        final byte[] bytes;
+        final int payloadOffset;
+        if (name instanceof BEncodeSerializedString) {
+            bytes = ((BEncodeSerializedString) name).asBEncoded();
+            payloadOffset = ((BEncodeSerializedString) name).getPayloadOffset();
+        } else {
+            bytes = name.asUnquotedUTF8();
+            payloadOffset = 0;
+        }
+        writeEncodedFieldName(name.getValue(), bytes, 0, payloadOffset, bytes.length - payloadOffset);
+    }
+
+    /**
+     * Writes a dictionary key given as raw bytes, which need not be valid UTF-8 whatever the charset of the output;
+     * binary keys such as info hashes are written this way. For the key order check the array is referenced until the
+     * next key of the same dictionary is written and must not be modified before.
+     */
+    public void writeFieldName(byte[] key, int offset, int len) throws IOException {
+        writeEncodedFieldName(null, key, offset, offset, len);
+    }
+
+    /**
+     * @param name   key as text, may be null if {@code bytes} are not to be decoded unless asked for
+     * @param bytes  encoded key, preceded by its length prefix starting at {@code start} if {@code start < offset}
+     * @param offset start of the key itself
+     */
+    private void writeEncodedFieldName(String name, byte[] bytes, int start, int offset, int len)
+            throws IOException {
+        final boolean sorting = out == sorter && ctx.inObject();
+        try {
+            if (sorting) {
+                if (validating()) {
+                    ctx.keyNextUnordered(name, bytes, offset, len);
+                }
+                sorter.startEntry();
+            } else if (validating()) {
+                ctx.keyNext(name, bytes, offset, len);
+            }
+            if (start == offset) {
+                encodeLength(len);
+            }
+            out.write(bytes, start, offset + len - start);
+            if (sorting) {
+                sorter.endKey();
+            }
+        } catch (JsonGenerationException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new JsonGenerationException(e.getMessage());
+        }
     }
 
     @Override
@@ -92,6 +279,75 @@ public class BEncodeGenerator extends JsonGenerator {
         writeString(text);
     }
 
+    /**
+     * Writes a complete, already bencoded value as is. The content is only checked for structural validity.
+     */
+    public void writeRawValue(byte[] data, int offset, int len) throws IOException {
+        if (validating()) {
+            checkRawValue(data, offset, len);
+        }
+        valueNext();
+        out.write(data, offset, len);
+    }
+
+    private static void checkRawValue(byte[] data, int offset, int len) throws JsonGenerationException {
+        try {
+            if (ValueScanner.valueEnd(data, offset, offset + len) != offset + len) {
+                throw new IOException("trailing content after value");
+            }
+        } catch (IOException e) {
+            throw new JsonGenerationException("invalid raw value: " + e.getMessage());
+        }
+    }
+
+    public void writeRawValue(byte[] data) throws IOException {
+        writeRawValue(data, 0, data.length);
+    }
+
+    /**
+     * When reading from a {@link BEncodeParser} keys and values are copied verbatim, without decoding strings.
+     */
+    @Override
+    public void copyCurrentEvent(JsonParser p) throws IOException {
+        if (!(p instanceof BEncodeParser)) {
+            super.copyCurrentEvent(p);
+            return;
+        }
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.FIELD_NAME) {
+            byte[] name = ((BEncodeParser) p).getCurrentNameBytes();
+            writeFieldName(name, 0, name.length);
+        } else if (t == JsonToken.VALUE_STRING || t == JsonToken.VALUE_NUMBER_INT) {
+            valueNext();
+            ((BEncodeParser) p).readRawValue(out);
+        } else {
+            super.copyCurrentEvent(p);
+        }
+    }
+
+    /**
+     * When reading from a {@link BEncodeParser} the structure is copied verbatim, without decoding strings.
+     */
+    @Override
+    public void copyCurrentStructure(JsonParser p) throws IOException {
+        if (!(p instanceof BEncodeParser)) {
+            super.copyCurrentStructure(p);
+            return;
+        }
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.FIELD_NAME) {
+            copyCurrentEvent(p);
+            t = p.nextToken();
+        }
+        if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY || t == JsonToken.VALUE_STRING ||
+                t == JsonToken.VALUE_NUMBER_INT) {
+            valueNext();
+            ((BEncodeParser) p).readRawValue(out);
+        } else {
+            super.copyCurrentStructure(p);
+        }
+    }
+
     @Override
     public void writeRawValue(String text, int offset, int len) throws IOException {
         throw new UnsupportedOperationException();
@@ -104,7 +360,27 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public int writeBinary(Base64Variant b64variant, InputStream data, int dataLength) throws IOException {
-        return 0;
+        valueNext();
+        if (dataLength < 0) {
+            try (SpoolBuffer spool = new SpoolBuffer(SPOOL_MEMORY_LIMIT)) {
+                long length = spool.readFrom(data);
+                if (length > Integer.MAX_VALUE) {
+                    throw new JsonGenerationException("binary value too large: " + length + " bytes");
+                }
+                encodeLength((int) length);
+                try (InputStream spooled = spool.openStream()) {
+                    out.write(spooled, length);
+                }
+                return (int) length;
+            }
+        }
+        encodeLength(dataLength);
+        long copied = out.write(data, dataLength);
+        if (copied < dataLength) {
+            throw new JsonGenerationException("Too few bytes available: missing " + (dataLength - copied) +
+                    " bytes (out of " + dataLength + ")");
+        }
+        return dataLength;
     }
 
     @Override
@@ -119,29 +395,57 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public JsonStreamContext getOutputContext() {
-        return null;
+        return ctx.getContext();
+    }
+
+    BEncodeGenerator manageTarget() {
+        targetManaged = true;
+        return this;
     }
 
     @Override
     public boolean isClosed() {
-        return false;
+        return closed;
     }
 
+    /**
+     * Writes pending output; the target is closed if {@link JsonGenerator.Feature#AUTO_CLOSE_TARGET} is enabled, or
+     * if the factory opened it.
+     */
     @Override
     public void close() throws IOException {
-        outputContext.close();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (sorter != null) {
+            sorter.close();
+        }
+        if (targetManaged || isEnabled(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            outputContext.close();
+        } else {
+            outputContext.release();
+        }
     }
 
+    /**
+     * Writes buffered output to the target, flushing the target itself only if {@link
+     * JsonGenerator.Feature#FLUSH_PASSED_TO_STREAM} is enabled.
+     */
     @Override
     public void flush() throws IOException {
-        outputContext.flush();
+        if (isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
+            outputContext.flush();
+        } else {
+            outputContext.flushBuffer();
+        }
     }
 
     @Override
     public void writeStartArray() throws IOException {
         valueNext();
-        ctx = ctx.createChildList();
-        outputContext.write(LIST_PREFIX);
+        ctx.pushList();
+        out.write(LIST_PREFIX);
     }
 
     @Override
@@ -150,14 +454,22 @@ public class BEncodeGenerator extends JsonGenerator {
             throw new JsonGenerationException("not in list");
         }
         switchToParent();
-        outputContext.write(END_SUFFIX);
+        out.write(END_SUFFIX);
     }
 
     @Override
     public void writeStartObject() throws IOException {
         valueNext();
-        ctx = ctx.createChildDictionary();
-        outputContext.write(DICTIONARY_PREFIX);
+        ctx.pushDictionary();
+        if (out == sorter || isEnabled(Feature.SORT_KEYS)) {
+            if (sorter == null) {
+                sorter = new SortingOutputContext(outputContext.getCharset(), bufferRecycler);
+            }
+            out = sorter;
+            sorter.startDictionary();
+        } else {
+            out.write(DICTIONARY_PREFIX);
+        }
     }
 
     @Override
@@ -166,12 +478,24 @@ public class BEncodeGenerator extends JsonGenerator {
             throw new JsonGenerationException("not in dictionary");
         }
         switchToParent();
-        outputContext.write(END_SUFFIX);
+        if (out == sorter) {
+            try {
+                sorter.endDictionary();
+            } catch (IOException e) {
+                throw new JsonGenerationException(e.getMessage());
+            }
+            if (!sorter.isActive()) {
+                sorter.transferTo(outputContext);
+                out = outputContext;
+            }
+        } else {
+            out.write(END_SUFFIX);
+        }
     }
 
     private void switchToParent() throws JsonGenerationException {
         try {
-            ctx = ctx.changeToParent();
+            ctx.pop();
         } catch (IOException e) {
             throw new JsonGenerationException(e.getMessage());
         }
@@ -179,10 +503,27 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public void writeFieldName(String name) throws IOException {
-        try {
-            ctx.keyNext(name);
-        } catch (IOException e) {
-            throw new JsonGenerationException(e.getMessage());
+        if (out == sorter && ctx.inObject()) {
+            try {
+                if (validating()) {
+                    ctx.keyNextUnordered(name);
+                }
+                sorter.startEntry();
+                encodeString(name);
+                sorter.endKey();
+            } catch (JsonGenerationException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new JsonGenerationException(e.getMessage());
+            }
+            return;
+        }
+        if (validating()) {
+            try {
+                ctx.keyNext(name);
+            } catch (IOException e) {
+                throw new JsonGenerationException(e.getMessage());
+            }
         }
         encodeString(name);
     }
@@ -194,19 +535,29 @@ public class BEncodeGenerator extends JsonGenerator {
     }
 
     private void encodeLength(int len) throws IOException {
-        outputContext.write(len);
-        outputContext.write(STRING_SEPARATOR);
+        out.write(len);
+        out.write(STRING_SEPARATOR);
     }
 
     private void encodeString(String text) throws IOException {
-        byte[] bytes = text.getBytes(outputContext.getCharset());
-        encodeLength(bytes.length);
-        outputContext.write(bytes);
+        encodeString(text, 0, text.length());
+    }
+
+    private void encodeString(CharSequence text, int offset, int len) throws IOException {
+        if (utf8) {
+            encodeLength(Utf8.length(text, offset, len));
+            out.write(text, offset, len);
+        } else {
+            byte[] bytes = text.subSequence(offset, offset + len).toString().getBytes(outputContext.getCharset());
+            encodeLength(bytes.length);
+            out.write(bytes);
+        }
     }
 
     @Override
     public void writeString(char[] text, int offset, int len) throws IOException {
-        writeString(String.valueOf(text, offset, len));
+        valueNext();
+        encodeString(CharBuffer.wrap(text), offset, len);
     }
 
     @Override
@@ -214,11 +565,11 @@ public class BEncodeGenerator extends JsonGenerator {
         valueNext();
         if (outputContext.getCharset().equals(UTF_8)) {
             encodeLength(length);
-            outputContext.write(text, offset, length);
+            out.write(text, offset, length);
         } else {
             byte[] reEncoded = new String(text, offset, length, UTF_8).getBytes();
             encodeLength(reEncoded.length);
-            outputContext.write(reEncoded);
+            out.write(reEncoded);
         }
     }
 
@@ -229,58 +580,59 @@ public class BEncodeGenerator extends JsonGenerator {
 
     @Override
     public void writeRaw(String text) throws IOException {
-        outputContext.write(text);
+        out.write(text);
     }
 
     @Override
     public void writeRaw(String text, int offset, int len) throws IOException {
-        char[] dst = new char[len];
-        text.getChars(offset, offset + len, dst, 0);
-        writeRaw(dst, 0, len);
+        out.write(text, offset, len);
     }
 
     @Override
     public void writeRaw(char[] text, int offset, int len) throws IOException {
-        outputContext.write(text, offset, len);
+        out.write(text, offset, len);
     }
 
     @Override
     public void writeRaw(char c) throws IOException {
-        outputContext.write(String.valueOf(c));
+        out.write(String.valueOf(c));
     }
 
     @Override
     public void writeBinary(Base64Variant b64variant, byte[] data, int offset, int len) throws IOException {
         valueNext();
         encodeLength(len);
-        outputContext.write(data, offset, len);
+        out.write(data, offset, len);
     }
 
     @Override
     public void writeNumber(int v) throws IOException {
         valueNext();
-        outputContext.write(INTEGER_PREFIX);
-        outputContext.write(v);
-        outputContext.write(END_SUFFIX);
+        out.write(INTEGER_PREFIX);
+        out.write(v);
+        out.write(END_SUFFIX);
     }
 
     @Override
     public void writeNumber(long v) throws IOException {
         valueNext();
-        outputContext.write(INTEGER_PREFIX);
-        outputContext.write(v);
-        outputContext.write(END_SUFFIX);
+        out.write(INTEGER_PREFIX);
+        out.write(v);
+        out.write(END_SUFFIX);
     }
 
     @Override
     public void writeNumber(BigInteger v) throws IOException {
         valueNext();
-        outputContext.write(INTEGER_PREFIX);
-        outputContext.write(v.toString());
-        outputContext.write(END_SUFFIX);
+        out.write(INTEGER_PREFIX);
+        out.write(v.toString());
+        out.write(END_SUFFIX);
     }
 
     private void valueNext() throws JsonGenerationException {
+        if (!validating()) {
+            return;
+        }
         try {
             ctx.valueNext();
         } catch (IOException e) {
@@ -311,12 +663,12 @@ public class BEncodeGenerator extends JsonGenerator {
     @Override
     public void writeBoolean(boolean state) throws IOException {
         valueNext();
-        outputContext.write(state ? TRUE_VALUE : FALSE_VALUE);
+        out.write(state ? TRUE_VALUE : FALSE_VALUE);
     }
 
     @Override
     public void writeNull() throws IOException {
         valueNext();
-        outputContext.write(NULL_VALUE);
+        out.write(NULL_VALUE);
     }
 }
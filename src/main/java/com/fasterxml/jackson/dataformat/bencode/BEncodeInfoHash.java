@@ -0,0 +1,305 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.dataformat.bencode.bittorrent.InfoHash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.*;
+
+/**
+ * Computes info hashes of torrent files without binding them: the root dictionary is scanned up to its {@code info}
+ * key, and the bytes of the {@code info} value are fed to message digests exactly as found in the input, while they
+ * are scanned. Strings are neither decoded nor copied, input is read through a fixed size buffer so memory use does
+ * not depend on the size of {@code pieces}, and reading stops at the end of the {@code info} value.
+ * <p>
+ * {@code compute} methods give the SHA-1 hash of BEP 3 (v1) torrents, {@code computeV2} the SHA-256 hash of BEP 52
+ * (v2) torrents; {@code digest} feeds any number of digests at once, such as both for hybrid torrents. Key order is not
+ * checked, the first {@code info} key counts.
+ */
+public final class BEncodeInfoHash {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LENGTH_DIGITS = 10;
+
+    private final ByteBuffer buf;
+    /**
+     * Refills {@link #buf}, null if the whole input is in memory.
+     */
+    private final InputStream in;
+    private final MessageDigest[] digests;
+    /**
+     * Bytes dropped from {@link #buf} when compacting.
+     */
+    private long consumed;
+    /**
+     * Start of the bytes in {@link #buf} which still have to be digested, -1 while outside of {@code info}.
+     */
+    private int hashFrom = -1;
+
+    private BEncodeInfoHash(ByteBuffer buf, InputStream in, MessageDigest[] digests) {
+        this.buf = buf;
+        this.in = in;
+        this.digests = digests;
+    }
+
+    public static InfoHash compute(InputStream in) throws IOException {
+        MessageDigest sha1 = newDigest("SHA-1");
+        digest(in, sha1);
+        return InfoHash.valueOf(sha1.digest());
+    }
+
+    public static InfoHash compute(ByteBuffer buffer) throws IOException {
+        MessageDigest sha1 = newDigest("SHA-1");
+        digest(buffer, sha1);
+        return InfoHash.valueOf(sha1.digest());
+    }
+
+    public static InfoHash compute(Path path) throws IOException {
+        MessageDigest sha1 = newDigest("SHA-1");
+        digest(path, sha1);
+        return InfoHash.valueOf(sha1.digest());
+    }
+
+    public static InfoHash computeV2(InputStream in) throws IOException {
+        MessageDigest sha256 = newDigest("SHA-256");
+        digest(in, sha256);
+        return InfoHash.valueOf(sha256.digest());
+    }
+
+    public static InfoHash computeV2(ByteBuffer buffer) throws IOException {
+        MessageDigest sha256 = newDigest("SHA-256");
+        digest(buffer, sha256);
+        return InfoHash.valueOf(sha256.digest());
+    }
+
+    public static InfoHash computeV2(Path path) throws IOException {
+        MessageDigest sha256 = newDigest("SHA-256");
+        digest(path, sha256);
+        return InfoHash.valueOf(sha256.digest());
+    }
+
+    /**
+     * Feeds the {@code info} value to {@code digests}. The stream is read somewhat past the value and not closed.
+     *
+     * @return length of the {@code info} value in bytes
+     * @throws JsonParseException if the input is not a dictionary with an {@code info} dictionary
+     */
+    public static long digest(InputStream in, MessageDigest... digests) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.limit(0);
+        return new BEncodeInfoHash(buffer, in, digests).scan();
+    }
+
+    /**
+     * Same as {@link #digest(InputStream, MessageDigest...)} for the remaining content of {@code buffer}, whose
+     * position is left unchanged.
+     */
+    public static long digest(ByteBuffer buffer, MessageDigest... digests) throws IOException {
+        return new BEncodeInfoHash(buffer.slice(), null, digests).scan();
+    }
+
+    /**
+     * Same as {@link #digest(InputStream, MessageDigest...)}, files up to 2 GB are memory mapped.
+     */
+    public static long digest(Path path, MessageDigest... digests) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return digest(Channels.newInputStream(channel), digests);
+            }
+            return digest(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), digests);
+        }
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-1 and SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long scan() throws IOException {
+        if (next() != DICTIONARY_PREFIX) {
+            throw error("not a dictionary");
+        }
+        while (true) {
+            final int c = next();
+            if (c == END_SUFFIX || c == -1) {
+                throw error("no info dictionary");
+            }
+            if (isInfoKey(length(c))) {
+                break;
+            }
+            skipValue();
+        }
+        require(1);
+        if (buf.get(buf.position()) != DICTIONARY_PREFIX) {
+            throw error("info is not a dictionary");
+        }
+        final long start = consumed + buf.position();
+        hashFrom = buf.position();
+        skipValue();
+        digestPending();
+        return consumed + buf.position() - start;
+    }
+
+    /**
+     * Moves past a key of {@code len} bytes.
+     */
+    private boolean isInfoKey(long len) throws IOException {
+        if (len != 4) {
+            pass(len);
+            return false;
+        }
+        require(4);
+        final int p = buf.position();
+        boolean info = buf.get(p) == 'i' && buf.get(p + 1) == 'n' && buf.get(p + 2) == 'f' && buf.get(p + 3) == 'o';
+        buf.position(p + 4);
+        return info;
+    }
+
+    private void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            final int c = next();
+            switch (c) {
+                case DICTIONARY_PREFIX:
+                case LIST_PREFIX:
+                    depth++;
+                    break;
+                case END_SUFFIX:
+                    if (depth == 0) {
+                        throw error("unexpected end marker");
+                    }
+                    depth--;
+                    break;
+                case INTEGER_PREFIX:
+                    skipInteger();
+                    break;
+                case -1:
+                    throw error("unexpected EOF");
+                default:
+                    pass(length(c));
+            }
+        } while (depth > 0);
+    }
+
+    private void skipInteger() throws IOException {
+        int c = next();
+        if (c == '-') {
+            c = next();
+        }
+        if (c < '0' || c > '9') {
+            throw error("malformed integer");
+        }
+        while ((c = next()) != END_SUFFIX) {
+            if (c < '0' || c > '9') {
+                throw error(c == -1 ? "integer not closed" : "malformed integer");
+            }
+        }
+    }
+
+    /**
+     * Reads a length prefix up to and including the separator.
+     *
+     * @param c first digit
+     */
+    private long length(int c) throws IOException {
+        if (c < '0' || c > '9') {
+            throw error("unknown token");
+        }
+        long len = c - '0';
+        for (int digits = 1; (c = next()) != STRING_SEPARATOR; digits++) {
+            if (c < '0' || c > '9' || digits == MAX_LENGTH_DIGITS) {
+                throw error("malformed byte string length token");
+            }
+            len = len * 10 + c - '0';
+        }
+        if (len > Integer.MAX_VALUE) {
+            throw error("illegal byte string size");
+        }
+        return len;
+    }
+
+    private int next() throws IOException {
+        if (!buf.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buf.get() & 0xff;
+    }
+
+    private void pass(long n) throws IOException {
+        while (n > 0) {
+            if (!buf.hasRemaining() && !fill()) {
+                throw error("unexpected EOF");
+            }
+            final int step = (int) Math.min(n, buf.remaining());
+            buf.position(buf.position() + step);
+            n -= step;
+        }
+    }
+
+    private void require(int n) throws IOException {
+        while (buf.remaining() < n) {
+            if (!fill()) {
+                throw error("unexpected EOF");
+            }
+        }
+    }
+
+    /**
+     * Digests what has been scanned so far and reads more input behind the remaining bytes.
+     *
+     * @return false at the end of input
+     */
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        digestPending();
+        if (hashFrom >= 0) {
+            hashFrom = 0;
+        }
+        consumed += buf.position();
+        buf.compact();
+        final int read = in.read(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        if (read > 0) {
+            buf.position(buf.position() + read);
+        }
+        buf.flip();
+        return read > 0;
+    }
+
+    private void digestPending() {
+        if (hashFrom < 0) {
+            return;
+        }
+        final int end = buf.position();
+        for (MessageDigest digest : digests) {
+            if (buf.hasArray()) {
+                digest.update(buf.array(), buf.arrayOffset() + hashFrom, end - hashFrom);
+            } else {
+                ByteBuffer pending = buf.duplicate();
+                pending.limit(end);
+                pending.position(hashFrom);
+                digest.update(pending);
+            }
+        }
+        hashFrom = end;
+    }
+
+    private JsonParseException error(String message) {
+        return new JsonParseException(message, new JsonLocation(in != null ? in : buf, consumed + buf.position(), -1, -1));
+    }
+}
@@ -1,9 +1,22 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.bencode.context.ByteBufferOutputContext;
+import com.fasterxml.jackson.dataformat.bencode.context.CountingOutputContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class BEncodeMapper extends ObjectMapper {
 
@@ -12,5 +25,65 @@ public class BEncodeMapper extends ObjectMapper {
         enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY);
         enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
         setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        registerModule(new BEncodeModule());
+    }
+
+    /**
+     * Computes the exact number of bytes {@code value} is serialized to, without retaining any output.
+     */
+    public long serializedSize(Object value) throws IOException {
+        CountingOutputContext counter = new CountingOutputContext(BEncodeFormat.UTF_8);
+        _configAndWriteValue(getFactory()._createBEncodeGenerator(counter), value);
+        return counter.getCount();
+    }
+
+    /**
+     * Serializes directly into a recycled buffer and returns an exactly sized copy of it, skipping the intermediate
+     * {@link com.fasterxml.jackson.core.util.ByteArrayBuilder} used by the default implementation.
+     */
+    @Override
+    public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+        BufferRecycler recycler = _jsonFactory._getBufferRecycler();
+        byte[] scratch = recycler.allocByteBuffer(BufferRecycler.BYTE_WRITE_ENCODING_BUFFER);
+        try {
+            ByteBufferOutputContext target = new ByteBufferOutputContext(ByteBuffer.wrap(scratch), BEncodeFormat.UTF_8);
+            _configAndWriteValue(getFactory()._createBEncodeGenerator(target), value);
+            ByteBuffer result = target.getByteBuffer();
+            return Arrays.copyOf(result.array(), result.position());
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw JsonMappingException.fromUnexpectedIOE(e);
+        } finally {
+            recycler.releaseByteBuffer(BufferRecycler.BYTE_WRITE_ENCODING_BUFFER, scratch);
+        }
+    }
+
+    @Override
+    public BEncodeFactory getFactory() {
+        return (BEncodeFactory) _jsonFactory;
+    }
+
+    /**
+     * Binds the elements of the list or dictionary at {@code path} (e.g. {@code /info/files}) one by one.
+     *
+     * @see BEncodeValueIterator
+     */
+    public <T> BEncodeValueIterator<T> readValues(JsonParser p, String path, Class<T> valueType) throws IOException {
+        return BEncodeValueIterator.forPath(p, JsonPointer.compile(path), readerFor(valueType), false);
+    }
+
+    /**
+     * Same as {@link #readValues(JsonParser, String, Class)}, the stream is closed along with the iterator.
+     */
+    public <T> BEncodeValueIterator<T> readValues(InputStream in, String path, Class<T> valueType)
+            throws IOException {
+        return BEncodeValueIterator.forPath(
+                _jsonFactory.createParser(in), JsonPointer.compile(path), readerFor(valueType), true);
+    }
+
+    public <T> BEncodeValueIterator<T> readValues(File f, String path, Class<T> valueType) throws IOException {
+        return BEncodeValueIterator.forPath(
+                _jsonFactory.createParser(f), JsonPointer.compile(path), readerFor(valueType), true);
     }
 }
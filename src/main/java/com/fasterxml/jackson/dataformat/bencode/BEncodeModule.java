@@ -0,0 +1,272 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.KeyDeserializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.Deserializers;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeResolverBuilder;
+import com.fasterxml.jackson.databind.jsontype.impl.AsPropertyTypeDeserializer;
+import com.fasterxml.jackson.databind.jsontype.impl.StdTypeResolverBuilder;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.StdDelegatingSerializer;
+import com.fasterxml.jackson.databind.type.MapType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+import com.fasterxml.jackson.databind.util.Converter;
+import com.fasterxml.jackson.dataformat.bencode.bittorrent.InfoHash;
+import com.fasterxml.jackson.dataformat.bencode.util.Utf8;
+
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Bencode specific serialization tweaks, registered by {@link BEncodeMapper}. Maps keyed by types with a {@link
+ * BinaryKeyDeserializer} registered here, such as {@link InfoHash}, are read from raw key bytes; type ids included
+ * as properties are looked up by {@link BEncodeTypeDeserializer}.
+ * <p>
+ * The latter is installed by an annotation introspector inserted ahead of the mapper's, which only resolves
+ * {@code @JsonTypeInfo}. Replacing the introspector with {@link
+ * com.fasterxml.jackson.databind.ObjectMapper#setAnnotationIntrospector} after registering the module drops it, and
+ * property type ids are then buffered by Jackson's {@link AsPropertyTypeDeserializer}. To keep it, pair the
+ * replacement behind the current one: {@code AnnotationIntrospector.pair(
+ * mapper.getDeserializationConfig().getAnnotationIntrospector(), replacement)}.
+ */
+public class BEncodeModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    public BEncodeModule() {
+        super("BEncodeModule", PackageVersion.VERSION);
+        setSerializerModifier(new BEncodeSerializerModifier());
+        addKeySerializer(InfoHash.class, new InfoHash.KeySerializer());
+        addKeyDeserializer(InfoHash.class, new InfoHash.KeyDeserializer());
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        context.addDeserializers(new Deserializers.Base() {
+            @Override
+            public JsonDeserializer<?> findMapDeserializer(
+                    MapType type, DeserializationConfig config, BeanDescription beanDesc, KeyDeserializer keyDeserializer,
+                    TypeDeserializer elementTypeDeserializer, JsonDeserializer<?> elementDeserializer)
+                    throws JsonMappingException {
+                if (keyDeserializer == null && _keyDeserializers != null) {
+                    keyDeserializer = _keyDeserializers.findKeyDeserializer(type.getKeyType(), config, beanDesc);
+                }
+                Class<?> implementation = mapImplementation(type.getRawClass());
+                if (!(keyDeserializer instanceof BinaryKeyDeserializer) || implementation == null) {
+                    return null;
+                }
+                return new BinaryKeyMapDeserializer(type,
+                        ClassUtil.findConstructor(implementation, config.canOverrideAccessModifiers()),
+                        (BinaryKeyDeserializer) keyDeserializer, elementDeserializer, elementTypeDeserializer);
+            }
+        });
+        context.insertAnnotationIntrospector(new BEncodeAnnotationIntrospector());
+    }
+
+    /**
+     * @return class to instantiate for {@code mapType}, null if there is no obvious choice for an abstract type
+     */
+    static Class<?> mapImplementation(Class<?> mapType) {
+        if (!mapType.isInterface() && !Modifier.isAbstract(mapType.getModifiers())) {
+            return mapType;
+        }
+        if (mapType.isAssignableFrom(LinkedHashMap.class)) {
+            return LinkedHashMap.class;
+        }
+        return mapType.isAssignableFrom(TreeMap.class) ? TreeMap.class : null;
+    }
+
+    /**
+     * Contributes type resolvers only, built by {@link BEncodeTypeResolverBuilder}; everything else is left to the
+     * introspectors behind it.
+     */
+    static class BEncodeAnnotationIntrospector extends NopAnnotationIntrospector {
+        private static final long serialVersionUID = 1L;
+
+        private final TypeResolverIntrospector types = new TypeResolverIntrospector();
+
+        @Override
+        public Version version() {
+            return PackageVersion.VERSION;
+        }
+
+        @Override
+        public TypeResolverBuilder<?> findTypeResolver(
+                MapperConfig<?> config, AnnotatedClass ac, JavaType baseType) {
+            return types.findTypeResolver(config, ac, baseType);
+        }
+
+        @Override
+        public TypeResolverBuilder<?> findPropertyTypeResolver(
+                MapperConfig<?> config, AnnotatedMember am, JavaType baseType) {
+            return types.findPropertyTypeResolver(config, am, baseType);
+        }
+
+        @Override
+        public TypeResolverBuilder<?> findPropertyContentTypeResolver(
+                MapperConfig<?> config, AnnotatedMember am, JavaType containerType) {
+            return types.findPropertyContentTypeResolver(config, am, containerType);
+        }
+    }
+
+    /**
+     * Resolves {@code @JsonTypeInfo} as the default introspector does, with {@link BEncodeTypeResolverBuilder}.
+     */
+    private static class TypeResolverIntrospector extends JacksonAnnotationIntrospector {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected StdTypeResolverBuilder _constructStdTypeResolverBuilder() {
+            return new BEncodeTypeResolverBuilder();
+        }
+    }
+
+    static class BEncodeTypeResolverBuilder extends StdTypeResolverBuilder {
+        @Override
+        public TypeDeserializer buildTypeDeserializer(
+                DeserializationConfig config, JavaType baseType, Collection<NamedType> subtypes) {
+            TypeDeserializer deserializer = super.buildTypeDeserializer(config, baseType, subtypes);
+            if (deserializer != null && deserializer.getClass() == AsPropertyTypeDeserializer.class) {
+                return new BEncodeTypeDeserializer((AsPropertyTypeDeserializer) deserializer);
+            }
+            return deserializer;
+        }
+    }
+
+    static class BEncodeSerializerModifier extends BeanSerializerModifier {
+        /**
+         * Replaces property names with {@link BEncodeSerializedString}s, so that encoded keys are computed once per
+         * property instead of once per write.
+         */
+        @Override
+        public List<BeanPropertyWriter> changeProperties(
+                SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+            for (int i = 0; i < beanProperties.size(); i++) {
+                BeanPropertyWriter writer = beanProperties.get(i);
+                if (writer.getClass() == BeanPropertyWriter.class) {
+                    beanProperties.set(i, new BEncodePropertyWriter(writer));
+                }
+            }
+            return beanProperties;
+        }
+
+        /**
+         * Orders properties by their encoded names as the specification demands, rather than by UTF-16 code units.
+         */
+        @Override
+        public List<BeanPropertyWriter> orderProperties(
+                SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+            if (config.isEnabled(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)) {
+                Collections.sort(beanProperties, PROPERTY_ORDER);
+            }
+            return beanProperties;
+        }
+
+        /**
+         * Maps with textual keys are sorted by encoded keys; Jackson would sort them by UTF-16 code units.
+         */
+        @Override
+        public JsonSerializer<?> modifyMapSerializer(
+                SerializationConfig config, MapType valueType, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            Class<?> keyClass = valueType.getKeyType().getRawClass();
+            if (config.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS) &&
+                    (keyClass == Object.class || CharSequence.class.isAssignableFrom(keyClass))) {
+                return new StdDelegatingSerializer(new KeyOrderingConverter(valueType), valueType, serializer);
+            }
+            return serializer;
+        }
+    }
+
+    private static final Comparator<BeanPropertyWriter> PROPERTY_ORDER = new Comparator<BeanPropertyWriter>() {
+        @Override
+        public int compare(BeanPropertyWriter a, BeanPropertyWriter b) {
+            return Utf8.compare(a.getName(), b.getName());
+        }
+    };
+
+    private static final Comparator<Object> KEY_ORDER = new Comparator<Object>() {
+        @Override
+        public int compare(Object a, Object b) {
+            return Utf8.compare((CharSequence) a, (CharSequence) b);
+        }
+    };
+
+    static class KeyOrderingConverter implements Converter<Object, Object> {
+        private final JavaType type;
+
+        KeyOrderingConverter(JavaType type) {
+            this.type = type;
+        }
+
+        @Override
+        public Object convert(Object input) {
+            Map<?, ?> value = (Map<?, ?>) input;
+            if (value.size() < 2 || value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() == KEY_ORDER) {
+                return value;
+            }
+            // maps in order already, such as those read from bencode, are written as they are
+            boolean ordered = true;
+            CharSequence previous = null;
+            for (Object key : value.keySet()) {
+                if (!(key instanceof CharSequence)) {
+                    // null and non-textual keys are left to the map serializer
+                    return value;
+                }
+                if (ordered && previous != null && Utf8.compare(previous, (CharSequence) key) >= 0) {
+                    ordered = false;
+                }
+                previous = (CharSequence) key;
+            }
+            if (ordered) {
+                return value;
+            }
+            Map<Object, Object> sorted = new TreeMap<Object, Object>(KEY_ORDER);
+            sorted.putAll(value);
+            return sorted;
+        }
+
+        @Override
+        public JavaType getInputType(TypeFactory typeFactory) {
+            return type;
+        }
+
+        @Override
+        public JavaType getOutputType(TypeFactory typeFactory) {
+            return type;
+        }
+    }
+
+    static class BEncodePropertyWriter extends BeanPropertyWriter {
+        private static final long serialVersionUID = 1L;
+
+        BEncodePropertyWriter(BeanPropertyWriter base) {
+            super(base, new BEncodeSerializedString(base.getName()));
+        }
+    }
+}
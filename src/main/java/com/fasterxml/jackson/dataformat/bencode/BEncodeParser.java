@@ -2,33 +2,83 @@ package com.fasterxml.jackson.dataformat.bencode;
 
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.core.base.ParserMinimalBase;
-import com.fasterxml.jackson.dataformat.bencode.context.BContext;
+import com.fasterxml.jackson.dataformat.bencode.context.BContextStack;
+import com.fasterxml.jackson.dataformat.bencode.context.ByteBufferOutputContext;
 import com.fasterxml.jackson.dataformat.bencode.context.NumberContext;
+import com.fasterxml.jackson.dataformat.bencode.context.OutputContext;
 import com.fasterxml.jackson.dataformat.bencode.context.StreamInputContext;
+import com.fasterxml.jackson.dataformat.bencode.context.StreamOutputContext;
 import com.fasterxml.jackson.dataformat.bencode.location.Location;
 import com.fasterxml.jackson.dataformat.bencode.util.CharsetUtils;
-import org.apache.commons.codec.binary.Base64;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.*;
 import static com.fasterxml.jackson.dataformat.bencode.PackageVersion.VERSION;
 
 public class BEncodeParser extends ParserMinimalBase {
+    private static final int COPY_BUFFER_SIZE = 4096;
 
     private ObjectCodec codec;
     private StreamInputContext sic;
     private boolean closed = false;
-    private BContext ctx = new BContext();
+    private final BContextStack ctx = new BContextStack();
     private int nextStringLength = -1;
+    private boolean tokenIncomplete = false;
+    private byte[] currentNameBytes;
     private NumberContext numberContext;
     private Location lastTokenLocation = new Location();
+    private byte[] copyBuffer;
+    private final boolean singleValue;
+    private boolean rootValueRead;
+    /**
+     * Input array if parsing one, else null; the index of the next byte is {@code inputBase} plus the byte offset of
+     * the current location.
+     */
+    private final byte[] input;
+    private final long inputBase;
+    private final int inputEnd;
+    /**
+     * Start and end indexes of input ranges ahead to be skipped, the nearest last.
+     */
+    private int[] skips;
+    private int skipCount;
 
     public BEncodeParser(InputStream in, ObjectCodec codec) {
+        this(in, codec, false);
+    }
+
+    /**
+     * @param singleValue if true, parsing ends after one root value; following input is not looked at
+     */
+    public BEncodeParser(InputStream in, ObjectCodec codec, boolean singleValue) {
+        this(in, codec, singleValue, null, 0, 0);
+    }
+
+    /**
+     * Parser over {@code data[offset, offset + len)} whose locations start at {@code location}, so that a copy of part
+     * of another input reports positions in that input.
+     */
+    BEncodeParser(byte[] data, int offset, int len, ObjectCodec codec, boolean singleValue, Location location) {
+        this(new ByteArrayInputStream(data, offset, len), codec, singleValue, data,
+                offset - location.getByteOffset(), offset + len);
+        sic.getLocation().set(location);
+    }
+
+    private BEncodeParser(InputStream in, ObjectCodec codec, boolean singleValue, byte[] input, long inputBase,
+                          int inputEnd) {
         this.codec = codec;
+        this.singleValue = singleValue;
+        this.input = input;
+        this.inputBase = inputBase;
+        this.inputEnd = inputEnd;
         sic = new StreamInputContext(in);
         numberContext = new NumberContext(sic);
     }
@@ -45,6 +95,17 @@ public class BEncodeParser extends ParserMinimalBase {
 
     @Override
     public JsonToken nextToken() throws IOException {
+        if (tokenIncomplete) {
+            skipIncompleteValue();
+        }
+        if (rootValueRead && singleValue) {
+            return (_currToken = null);
+        }
+        if (skipCount > 0 && getInputPosition() == skips[2 * skipCount - 2]) {
+            skipCount--;
+            //noinspection ResultOfMethodCallIgnored
+            sic.skip(skips[2 * skipCount + 1] - skips[2 * skipCount]);
+        }
         lastTokenLocation.set(sic.getLocation());
         sic.mark(2);
         final int token = sic.read();
@@ -52,20 +113,21 @@ public class BEncodeParser extends ParserMinimalBase {
         sic.reset();
 
         if (token == -1) {
-            return (_currToken = JsonToken.NOT_AVAILABLE);
+            _handleEOF();
+            return (_currToken = null);
         }
 
         switch (token) {
             case DICTIONARY_PREFIX:
                 valueNext();
-                ctx = ctx.createChildDictionary();
+                ctx.pushDictionary();
                 //noinspection ResultOfMethodCallIgnored
                 sic.skip(1);
                 _currToken = ctx.getStartToken();
                 break;
             case LIST_PREFIX:
                 valueNext();
-                ctx = ctx.createChildList();
+                ctx.pushList();
                 //noinspection ResultOfMethodCallIgnored
                 sic.skip(1);
                 _currToken = ctx.getStartToken();
@@ -73,7 +135,7 @@ public class BEncodeParser extends ParserMinimalBase {
             case END_SUFFIX:
                 _currToken = ctx.getEndToken();
                 try {
-                    ctx = ctx.changeToParent();
+                    ctx.pop();
                 } catch (IOException e) {
                     throw new JsonParseException(e.getMessage(), sic.getJsonLocation());
                 }
@@ -85,22 +147,141 @@ public class BEncodeParser extends ParserMinimalBase {
                 sic.skip(1);
                 numberContext.guessType();
                 _currToken = JsonToken.VALUE_NUMBER_INT;
+                tokenIncomplete = true;
                 break;
             default:
                 parseNextLength(token);
                 // perform read-ahead for FIELD_NAME due to strange deserializer contract
-                if (ctx.getExpected() == BContext.Expect.KEY && next != END_SUFFIX) {
-                    //noinspection ResultOfMethodCallIgnored
+                if (ctx.expectsKey() && next != END_SUFFIX) {
                     _currToken = JsonToken.FIELD_NAME;
-                    getText();
+                    readKey();
                 } else {
                     _currToken = JsonToken.VALUE_STRING;
+                    tokenIncomplete = true;
                 }
         }
 
+        if (ctx.inRoot()) {
+            rootValueRead = true;
+        }
         return _currToken;
     }
 
+    /**
+     * @return number of bytes consumed from the input so far; once a root value has been read completely, such as
+     * after {@link #nextToken()} returned null for a single value parser, the end of the value
+     */
+    public long getConsumedBytes() {
+        return sic.getLocation().getByteOffset();
+    }
+
+    /**
+     * @return input array if parsing one, else null; the array must not be modified
+     */
+    byte[] getInputArray() {
+        return input;
+    }
+
+    /**
+     * @return index of the next byte of the input array
+     */
+    int getInputPosition() {
+        return (int) (inputBase + sic.getLocation().getByteOffset());
+    }
+
+    /**
+     * @return index right after the input in the input array
+     */
+    int getInputEnd() {
+        return inputEnd;
+    }
+
+    /**
+     * Skips the input array range {@code [start, end)}, a dictionary entry of the current dictionary which is still
+     * ahead, once {@link #nextToken()} reaches it. Ranges of nested values may be added while others are pending.
+     */
+    void skipAhead(int start, int end) {
+        if (skips == null) {
+            skips = new int[8];
+        } else if (2 * skipCount == skips.length) {
+            skips = Arrays.copyOf(skips, 2 * skips.length);
+        }
+        skips[2 * skipCount] = start;
+        skips[2 * skipCount + 1] = end;
+        skipCount++;
+    }
+
+    /**
+     * Looks ahead without consuming any input.
+     *
+     * @param prefixedKey key with its length prefix
+     * @return whether the dictionary just entered starts with {@code prefixedKey} and a byte string value
+     */
+    boolean startsWithStringEntry(byte[] prefixedKey) throws IOException {
+        sic.mark(prefixedKey.length + 1);
+        try {
+            for (byte b : prefixedKey) {
+                if (sic.read() != (b & 0xff)) {
+                    return false;
+                }
+            }
+            final int c = sic.read();
+            return c >= '0' && c <= '9';
+        } finally {
+            sic.reset();
+        }
+    }
+
+    /**
+     * Copies the list or dictionary at the current start token, as {@link #readRawValue(OutputContext)} does.
+     *
+     * @return single value parser over the copy, positioned at the same start token and reporting locations of this
+     * parser's input
+     */
+    BEncodeParser copyCurrentContainer(int initialSize) throws IOException {
+        Location start = new Location();
+        start.set(lastTokenLocation);
+        ByteBufferOutputContext copy = new ByteBufferOutputContext(ByteBuffer.allocate(initialSize), UTF_8);
+        readRawValue(copy);
+        ByteBuffer raw = copy.getByteBuffer();
+        BEncodeParser content = new BEncodeParser(raw.array(), 0, raw.position(), codec, true, start);
+        content.nextToken();
+        return content;
+    }
+
+    /**
+     * Writes input which has been read ahead from the underlying stream but not parsed yet to {@code out}. Streams are
+     * only read ahead if they do not support marks; byte arrays and buffers never are.
+     *
+     * @return number of bytes released
+     */
+    @Override
+    public int releaseBuffered(OutputStream out) throws IOException {
+        return sic.releaseBuffered(out);
+    }
+
+    /**
+     * Skips the payload of a scalar value which was announced by {@link #nextToken()} but never read, so callers
+     * (and {@link #skipChildren()}) may step over values they are not interested in.
+     */
+    private void skipIncompleteValue() throws IOException {
+        tokenIncomplete = false;
+        valueNext();
+        if (_currToken == JsonToken.VALUE_STRING) {
+            if (sic.skip(nextStringLength) < nextStringLength) {
+                throw new JsonParseException("unexpected EOF", getCurrentLocation());
+            }
+            nextStringLength = -1;
+        } else {
+            int c;
+            while ((c = sic.read()) != END_SUFFIX) {
+                if (c == -1) {
+                    throw new JsonParseException("integer not closed", getCurrentLocation());
+                }
+            }
+        }
+    }
+
     protected void parseNextLength(int token) throws IOException {
         if (token < '0' && token > '9') {
             throw new JsonParseException("unknown token", getCurrentLocation());
@@ -143,7 +324,7 @@ public class BEncodeParser extends ParserMinimalBase {
 
     @Override
     public JsonStreamContext getParsingContext() {
-        return null;
+        return ctx.getContext();
     }
 
     @Override
@@ -153,19 +334,139 @@ public class BEncodeParser extends ParserMinimalBase {
 
     @Override
     public String getText() throws IOException {
-        byte[] bytes = getBinaryInternal();
-        String returnValue = CharsetUtils.isUTF8(bytes) ? new String(bytes, UTF_8) : Base64.encodeBase64String(bytes); // TODO add encoding support
         if (_currToken == JsonToken.FIELD_NAME) {
+            return ctx.getCurrentName();
+        }
+        String returnValue = CharsetUtils.decode(getBinaryInternal());
+        valueNext();
+        return returnValue;
+    }
+
+    private void readKey() throws IOException {
+        currentNameBytes = getBinaryInternal();
+        try {
+            ctx.keyNext(currentNameBytes, 0, currentNameBytes.length);
+        } catch (IOException e) {
+            throw new JsonParseException(this, e.getMessage(), sic.getJsonLocation());
+        }
+    }
+
+    /**
+     * @return raw bytes of the current dictionary key as found in the input, without any decoding; only valid while
+     * the current token is {@link JsonToken#FIELD_NAME}. The array must not be modified.
+     */
+    public byte[] getCurrentNameBytes() {
+        return _currToken == JsonToken.FIELD_NAME ? currentNameBytes : null;
+    }
+
+    /**
+     * Copies the current value verbatim, as found in the input, and moves past it: scalars which have not been read
+     * yet, or whole lists and dictionaries when positioned at their start token; in the latter case the current token
+     * becomes the matching end token. Dictionary key order is not checked.
+     *
+     * @return number of bytes copied
+     */
+    public long readRawValue(OutputContext out) throws IOException {
+        if (_currToken == JsonToken.START_OBJECT || _currToken == JsonToken.START_ARRAY) {
+            long copied = copyRawContainer(out);
+            _currToken = ctx.getEndToken();
             try {
-                ctx.keyNext(returnValue);
+                ctx.pop();
             } catch (IOException e) {
                 throw new JsonParseException(this, e.getMessage(), sic.getJsonLocation());
             }
-        } else {
-            valueNext();
+            return copied;
         }
+        if (!tokenIncomplete) {
+            throw new IllegalStateException("current token is not an unread value: " + _currToken);
+        }
+        valueNext();
+        if (_currToken == JsonToken.VALUE_STRING) {
+            final int len = nextStringLength;
+            nextStringLength = -1;
+            return copyRawString(out, len);
+        }
+        out.write(INTEGER_PREFIX);
+        return 1 + copyRawInteger(out);
+    }
 
-        return returnValue;
+    /**
+     * Same as {@link #readRawValue(OutputContext)}, writing to a stream.
+     */
+    public long readRawValue(OutputStream out) throws IOException {
+        StreamOutputContext outputContext = new StreamOutputContext(out, UTF_8);
+        long copied = readRawValue(outputContext);
+        outputContext.flush();
+        return copied;
+    }
+
+    private long copyRawString(OutputContext out, int len) throws IOException {
+        out.write(len);
+        out.write(STRING_SEPARATOR);
+        if (out.write(sic, len) < len) {
+            throw new JsonParseException(this, "unexpected EOF", sic.getJsonLocation());
+        }
+        int digits = 1;
+        for (int i = len; i >= 10; i /= 10) {
+            digits++;
+        }
+        return digits + 1 + len;
+    }
+
+    private long copyRawInteger(OutputContext out) throws IOException {
+        long copied = 0;
+        int c;
+        do {
+            c = sic.read();
+            if (c == -1) {
+                throw new JsonParseException(this, "integer not closed", sic.getJsonLocation());
+            }
+            out.write((byte) c);
+            copied++;
+        } while (c != END_SUFFIX);
+        return copied;
+    }
+
+    private long copyRawContainer(OutputContext out) throws IOException {
+        out.write(_currToken == JsonToken.START_OBJECT ? DICTIONARY_PREFIX : LIST_PREFIX);
+        long copied = 1;
+        int depth = 1;
+        while (depth > 0) {
+            final int c = sic.read();
+            switch (c) {
+                case DICTIONARY_PREFIX:
+                case LIST_PREFIX:
+                    depth++;
+                    out.write((byte) c);
+                    copied++;
+                    break;
+                case END_SUFFIX:
+                    depth--;
+                    out.write((byte) c);
+                    copied++;
+                    break;
+                case INTEGER_PREFIX:
+                    out.write((byte) c);
+                    copied += 1 + copyRawInteger(out);
+                    break;
+                case -1:
+                    throw new JsonParseException(this, "unexpected EOF", sic.getJsonLocation());
+                default:
+                    if (c < '0' || c > '9') {
+                        throw new JsonParseException(this, "unknown token", sic.getJsonLocation());
+                    }
+                    long len = c - '0';
+                    int d;
+                    while ((d = sic.read()) != STRING_SEPARATOR) {
+                        if (d < '0' || d > '9' || (len = len * 10 + d - '0') > Integer.MAX_VALUE) {
+                            throw new JsonParseException(this, "malformed byte string length token",
+                                    sic.getJsonLocation());
+                        }
+                    }
+                    copied += copyRawString(out, (int) len);
+            }
+        }
+        return copied;
     }
 
     @Override
@@ -194,7 +495,35 @@ public class BEncodeParser extends ParserMinimalBase {
         return getBinaryInternal();
     }
 
+    /**
+     * Streams the payload of the current byte string to {@code out} without materializing it, through a buffer of at
+     * most {@value #COPY_BUFFER_SIZE} bytes.
+     */
+    @Override
+    public int readBinaryValue(Base64Variant b64variant, OutputStream out) throws IOException {
+        valueNext();
+        if (nextStringLength < 0) {
+            throw new IllegalStateException("next token should be determined before invoking readBinaryValue");
+        }
+        final int len = nextStringLength;
+        if (copyBuffer == null || copyBuffer.length < Math.min(len, COPY_BUFFER_SIZE)) {
+            copyBuffer = new byte[Math.min(len, COPY_BUFFER_SIZE)];
+        }
+        int remaining = len;
+        while (remaining > 0) {
+            int read = sic.read(copyBuffer, 0, Math.min(copyBuffer.length, remaining));
+            if (read <= 0) {
+                throw new JsonParseException("unexpected EOF", getCurrentLocation());
+            }
+            out.write(copyBuffer, 0, read);
+            remaining -= read;
+        }
+        nextStringLength = -1;
+        return len;
+    }
+
     private void valueNext() throws IOException {
+        tokenIncomplete = false;
         try {
             ctx.valueNext();
         } catch (IOException e) {
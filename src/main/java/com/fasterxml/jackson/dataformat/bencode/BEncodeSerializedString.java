@@ -0,0 +1,38 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * {@link SerializedString} which additionally caches its complete bencoded form ({@code <length>:<UTF-8 bytes>}), so
+ * that writing it as a dictionary key is a single array copy.
+ */
+public class BEncodeSerializedString extends SerializedString {
+    private static final long serialVersionUID = 1L;
+
+    private final transient byte[] encoded;
+    private final transient int payloadOffset;
+
+    public BEncodeSerializedString(String v) {
+        super(v);
+        final byte[] utf8 = asUnquotedUTF8();
+        final byte[] prefix = (utf8.length + ":").getBytes(BEncodeFormat.LATIN_1);
+        payloadOffset = prefix.length;
+        encoded = new byte[prefix.length + utf8.length];
+        System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+        System.arraycopy(utf8, 0, encoded, prefix.length, utf8.length);
+    }
+
+    /**
+     * @return length prefix, separator and UTF-8 bytes of the value; must not be modified
+     */
+    public byte[] asBEncoded() {
+        return encoded;
+    }
+
+    /**
+     * @return offset of the UTF-8 bytes of the value within {@link #asBEncoded()}
+     */
+    public int getPayloadOffset() {
+        return payloadOffset;
+    }
+}
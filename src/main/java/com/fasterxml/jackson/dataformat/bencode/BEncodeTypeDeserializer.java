@@ -0,0 +1,162 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.jsontype.impl.AsPropertyTypeDeserializer;
+import com.fasterxml.jackson.dataformat.bencode.util.ValueScanner;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static com.fasterxml.jackson.dataformat.bencode.BEncodeFormat.*;
+
+/**
+ * Resolves {@link com.fasterxml.jackson.annotation.JsonTypeInfo.As#PROPERTY} type ids of dictionaries read by a {@link
+ * BEncodeParser}. Keys are sorted, so the type id often follows the properties; rather than buffering those into a
+ * {@link com.fasterxml.jackson.databind.util.TokenBuffer}, decoding every string on the way, the dictionary is scanned
+ * for the type id in the input array, and the subtype is bound by the same parser, which skips the type id unless it
+ * is visible. Input read from streams is copied once, at the outermost polymorphic dictionary, and parsed from the
+ * copy with the locations of the stream. Dictionaries starting with the type id, other parsers, and dictionaries
+ * already entered are left to {@link AsPropertyTypeDeserializer}.
+ */
+class BEncodeTypeDeserializer extends AsPropertyTypeDeserializer {
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_COPY_SIZE = 256;
+
+    private final byte[] typePropertyBytes;
+    private final byte[] typePropertyKey;
+
+    BEncodeTypeDeserializer(AsPropertyTypeDeserializer src) {
+        this(src, null);
+    }
+
+    private BEncodeTypeDeserializer(AsPropertyTypeDeserializer src, BeanProperty property) {
+        super(src, property);
+        typePropertyBytes = _typePropertyName.getBytes(UTF_8);
+        typePropertyKey = concat((typePropertyBytes.length + ":").getBytes(UTF_8), typePropertyBytes);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    @Override
+    public TypeDeserializer forProperty(BeanProperty prop) {
+        return prop == _property ? this : new BEncodeTypeDeserializer(this, prop);
+    }
+
+    @Override
+    public Object deserializeTypedFromObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!(p instanceof BEncodeParser) || p.getCurrentToken() != JsonToken.START_OBJECT) {
+            return super.deserializeTypedFromObject(p, ctxt);
+        }
+        BEncodeParser parser = (BEncodeParser) p;
+        if (parser.startsWithStringEntry(typePropertyKey)) {
+            // nothing ahead of the type id to buffer
+            return super.deserializeTypedFromObject(p, ctxt);
+        }
+        final BEncodeParser content = parser.getInputArray() != null ? parser
+                : parser.copyCurrentContainer(INITIAL_COPY_SIZE);
+        try {
+            return deserializeTyped(content, ctxt);
+        } finally {
+            if (content != parser) {
+                content.close();
+            }
+        }
+    }
+
+    /**
+     * @param p parser over an input array, positioned at the start of a dictionary
+     */
+    private Object deserializeTyped(BEncodeParser p, DeserializationContext ctxt) throws IOException {
+        final byte[] buf = p.getInputArray();
+        final int end = p.getInputEnd();
+        String typeId = null;
+        try {
+            int i = p.getInputPosition();
+            while (i < end && buf[i] != END_SUFFIX) {
+                final int keyStart = i;
+                final int keyEnd = ValueScanner.stringEnd(buf, i, end);
+                final int valueEnd = ValueScanner.valueEnd(buf, keyEnd, end);
+                if (isTypeProperty(buf, keyStart, keyEnd)) {
+                    typeId = typeId(buf, keyEnd, valueEnd);
+                    if (typeId == null) {
+                        return ctxt.reportInputMismatch(_baseType,
+                                "type id property '%s' of %s must be a byte string or an integer",
+                                _typePropertyName, baseTypeName());
+                    }
+                    if (!_typeIdVisible) {
+                        p.skipAhead(keyStart, valueEnd);
+                    }
+                    break;
+                }
+                i = valueEnd;
+            }
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new JsonParseException(p, e.getMessage(), p.getCurrentLocation());
+        }
+
+        JsonDeserializer<Object> deser;
+        if (typeId != null) {
+            deser = _findDeserializer(ctxt, typeId);
+        } else {
+            deser = _findDefaultImplDeserializer(ctxt);
+            if (deser == null) {
+                JavaType type = _handleMissingTypeId(ctxt, "missing type id property '" + _typePropertyName + "'");
+                if (type == null) {
+                    p.skipChildren();
+                    return null;
+                }
+                deser = ctxt.findContextualValueDeserializer(type, _property);
+            }
+        }
+        return deser.deserialize(p, ctxt);
+    }
+
+    private boolean isTypeProperty(byte[] buf, int keyStart, int keyEnd) {
+        final int payloadStart = payloadStart(buf, keyStart);
+        if (keyEnd - payloadStart != typePropertyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < typePropertyBytes.length; i++) {
+            if (buf[payloadStart + i] != typePropertyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int payloadStart(byte[] buf, int stringStart) {
+        int i = stringStart;
+        while (buf[i] != STRING_SEPARATOR) {
+            i++;
+        }
+        return i + 1;
+    }
+
+    /**
+     * @return text of a string or integer value, null for containers
+     */
+    private static String typeId(byte[] buf, int valueStart, int valueEnd) {
+        if (buf[valueStart] == INTEGER_PREFIX) {
+            return new String(buf, valueStart + 1, valueEnd - valueStart - 2, UTF_8);
+        }
+        if (buf[valueStart] == DICTIONARY_PREFIX || buf[valueStart] == LIST_PREFIX) {
+            return null;
+        }
+        final int payloadStart = payloadStart(buf, valueStart);
+        return new String(buf, payloadStart, valueEnd - payloadStart, UTF_8);
+    }
+}
@@ -0,0 +1,201 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the elements of a single list or dictionary located somewhere inside a bencoded document, binding
+ * one element at a time. Only the element being returned is materialized, so e.g. {@code /info/files} of a torrent
+ * with hundreds of thousands of files can be processed without building the whole list.
+ * <p>
+ * For dictionaries the values are returned, the key of the last returned value is available via
+ * {@link #getCurrentKey()}.
+ */
+public class BEncodeValueIterator<T> implements Iterator<T>, Closeable {
+    private final JsonParser parser;
+    private final ObjectReader reader;
+    private final boolean closeParser;
+    private final boolean dictionary;
+    private final JsonToken endToken;
+    private boolean hasPeeked;
+    private boolean exhausted;
+    private boolean closed;
+    private String nextKey;
+    private String currentKey;
+
+    BEncodeValueIterator(JsonParser parser, ObjectReader reader, boolean closeParser) {
+        this.parser = parser;
+        this.reader = reader;
+        this.closeParser = closeParser;
+        JsonToken t = parser.getCurrentToken();
+        dictionary = t == JsonToken.START_OBJECT;
+        endToken = dictionary ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+        exhausted = t == null;
+    }
+
+    /**
+     * Positions the parser at the container denoted by {@code path}, and returns an iterator over its elements.
+     * Parts of the document preceding the container are skipped without being bound. If the path does not exist
+     * the iterator is empty.
+     *
+     * @param parser fresh parser, or a parser positioned right before the document root
+     * @param path pointer like {@code /info/files} or {@code /announce-list/0}; empty pointer denotes the root
+     * @param reader reader used to bind elements
+     * @param closeParser whether the parser should be closed along with the iterator, or right away if the path does
+     * not exist or can not be reached
+     */
+    static <T> BEncodeValueIterator<T> forPath(
+            JsonParser parser, JsonPointer path, ObjectReader reader, boolean closeParser) throws IOException {
+        try {
+            BEncodeValueIterator<T> iterator = new BEncodeValueIterator<T>(seek(parser, path), reader, closeParser);
+            if (iterator.exhausted) {
+                iterator.close();
+            }
+            return iterator;
+        } catch (IOException | RuntimeException e) {
+            if (closeParser) {
+                try {
+                    parser.close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static JsonParser seek(JsonParser parser, JsonPointer path) throws IOException {
+        JsonToken t = parser.getCurrentToken() == null ? parser.nextToken() : parser.getCurrentToken();
+        while (t != null && !path.matches()) {
+            if (!descend(parser, t, path)) {
+                parser.clearCurrentToken();
+                break;
+            }
+            path = path.tail();
+            t = parser.getCurrentToken();
+        }
+        t = parser.getCurrentToken();
+        if (t != null && t != JsonToken.START_OBJECT && t != JsonToken.START_ARRAY) {
+            throw JsonMappingException.from(parser, "path does not point to a list or dictionary: " + t);
+        }
+        return parser;
+    }
+
+    /**
+     * @return true if the parser was moved to the first token of the value matching the head segment of path
+     */
+    private static boolean descend(JsonParser parser, JsonToken t, JsonPointer path) throws IOException {
+        if (t == JsonToken.START_OBJECT) {
+            final String name = path.getMatchingProperty();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean found = name.equals(parser.getCurrentName());
+                parser.nextToken();
+                if (found) {
+                    return true;
+                }
+                parser.skipChildren();
+            }
+        } else if (t == JsonToken.START_ARRAY) {
+            final int index = path.getMatchingIndex();
+            if (index < 0) {
+                return false;
+            }
+            for (int i = 0; (t = parser.nextToken()) != JsonToken.END_ARRAY && t != null; i++) {
+                if (i == index) {
+                    return true;
+                }
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (exhausted) {
+            return false;
+        }
+        if (hasPeeked) {
+            return true;
+        }
+        try {
+            JsonToken t = parser.nextToken();
+            if (dictionary && t == JsonToken.FIELD_NAME) {
+                nextKey = parser.getCurrentName();
+                t = parser.nextToken();
+            }
+            if (t == null || t == endToken) {
+                close();
+                return false;
+            }
+            hasPeeked = true;
+            return true;
+        } catch (JsonMappingException e) {
+            throw new RuntimeJsonMappingException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        hasPeeked = false;
+        currentKey = nextKey;
+        try {
+            return reader.readValue(parser);
+        } catch (JsonMappingException e) {
+            throw new RuntimeJsonMappingException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return dictionary key of the value last returned by {@link #next()}, null when iterating over a list
+     */
+    public String getCurrentKey() {
+        return currentKey;
+    }
+
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Ends the iteration, and closes the parser if the iterator owns it.
+     */
+    @Override
+    public void close() throws IOException {
+        exhausted = true;
+        if (closeParser && !closed) {
+            closed = true;
+            parser.close();
+        }
+    }
+}
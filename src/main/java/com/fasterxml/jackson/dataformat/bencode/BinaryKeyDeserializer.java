@@ -0,0 +1,20 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.KeyDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Key deserializer for types built from the raw bytes of dictionary keys rather than from text. Registered with
+ * {@link BEncodeModule#addKeyDeserializer(Class, KeyDeserializer)}, maps keyed by such types are read from {@link
+ * BEncodeParser} without decoding keys to strings, so binary keys never go through their Base64 substitute.
+ * {@link #deserializeKey(String, DeserializationContext)} is used for other formats.
+ */
+public abstract class BinaryKeyDeserializer extends KeyDeserializer {
+    /**
+     * @param key bytes of the key as found in the input, must not be modified or retained
+     */
+    public abstract Object deserializeKey(byte[] key, int offset, int len, DeserializationContext ctxt)
+            throws IOException;
+}
@@ -0,0 +1,110 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+
+/**
+ * Map deserializer for keys handled by a {@link BinaryKeyDeserializer}: with {@link BEncodeParser} keys are built from
+ * {@link BEncodeParser#getCurrentNameBytes()}, other parsers go through the textual name.
+ */
+class BinaryKeyMapDeserializer extends StdDeserializer<Map<Object, Object>> implements ContextualDeserializer {
+    private static final long serialVersionUID = 1L;
+
+    private final JavaType type;
+    private final Constructor<?> constructor;
+    private final BinaryKeyDeserializer keyDeserializer;
+    private final JsonDeserializer<Object> valueDeserializer;
+    private final TypeDeserializer valueTypeDeserializer;
+
+    @SuppressWarnings("unchecked")
+    BinaryKeyMapDeserializer(JavaType type, Constructor<?> constructor, BinaryKeyDeserializer keyDeserializer,
+                             JsonDeserializer<?> valueDeserializer, TypeDeserializer valueTypeDeserializer) {
+        super(type);
+        this.type = type;
+        this.constructor = constructor;
+        this.keyDeserializer = keyDeserializer;
+        this.valueDeserializer = (JsonDeserializer<Object>) valueDeserializer;
+        this.valueTypeDeserializer = valueTypeDeserializer;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property)
+            throws JsonMappingException {
+        final JavaType valueType = type.getContentType();
+        JsonDeserializer<?> deser = valueDeserializer == null ?
+                ctxt.findContextualValueDeserializer(valueType, property) :
+                ctxt.handleSecondaryContextualization(valueDeserializer, property, valueType);
+        TypeDeserializer typeDeser = valueTypeDeserializer == null ? null : valueTypeDeserializer.forProperty(property);
+        if (deser == valueDeserializer && typeDeser == valueTypeDeserializer) {
+            return this;
+        }
+        return new BinaryKeyMapDeserializer(type, constructor, keyDeserializer, deser, typeDeser);
+    }
+
+    @Override
+    public JavaType getValueType() {
+        return type;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Object, Object> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        final Map<Object, Object> result;
+        try {
+            result = (Map<Object, Object>) constructor.newInstance();
+        } catch (Exception e) {
+            return (Map<Object, Object>) ctxt.handleInstantiationProblem(handledType(), null, e);
+        }
+        return deserialize(p, ctxt, result);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Object, Object> deserialize(JsonParser p, DeserializationContext ctxt, Map<Object, Object> result)
+            throws IOException {
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.START_OBJECT) {
+            t = p.nextToken();
+        } else if (t != JsonToken.FIELD_NAME && t != JsonToken.END_OBJECT) {
+            return (Map<Object, Object>) ctxt.handleUnexpectedToken(handledType(), p);
+        }
+        final BEncodeParser bp = p instanceof BEncodeParser ? (BEncodeParser) p : null;
+        for (; t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+            final Object key;
+            if (bp != null) {
+                byte[] name = bp.getCurrentNameBytes();
+                key = keyDeserializer.deserializeKey(name, 0, name.length, ctxt);
+            } else {
+                key = keyDeserializer.deserializeKey(p.getCurrentName(), ctxt);
+            }
+            final Object value;
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                value = valueDeserializer.getNullValue(ctxt);
+            } else if (valueTypeDeserializer == null) {
+                value = valueDeserializer.deserialize(p, ctxt);
+            } else {
+                value = valueDeserializer.deserializeWithType(p, ctxt, valueTypeDeserializer);
+            }
+            result.put(key, value);
+        }
+        return result;
+    }
+
+    @Override
+    public Object deserializeWithType(JsonParser p, DeserializationContext ctxt, TypeDeserializer typeDeserializer)
+            throws IOException {
+        return typeDeserializer.deserializeTypedFromObject(p, ctxt);
+    }
+}
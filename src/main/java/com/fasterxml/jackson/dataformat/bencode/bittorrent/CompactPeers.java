@@ -0,0 +1,494 @@
+package com.fasterxml.jackson.dataformat.bencode.bittorrent;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * Peer list in the compact form of tracker responses: a byte string of 6 byte entries (IPv4 address and port, BEP 23)
+ * in {@code peers}, or of 18 byte entries (IPv6 address and port, BEP 7) in {@code peers6}. Addresses and ports are
+ * kept in primitive arrays, so a list takes a fixed number of objects regardless of its size; instances may be
+ * {@link #clear() cleared} and refilled.
+ * <p>
+ * Bound as a property named {@code peers6} the IPv6 format is used, IPv4 otherwise; {@link Ipv4Deserializer} or
+ * {@link Ipv6Deserializer} can be set to override that. Payloads are streamed from {@link
+ * com.fasterxml.jackson.dataformat.bencode.BEncodeParser} and to {@link
+ * com.fasterxml.jackson.dataformat.bencode.BEncodeGenerator} without intermediate byte arrays.
+ */
+@JsonSerialize(using = CompactPeers.Serializer.class)
+@JsonDeserialize(using = CompactPeers.Deserializer.class)
+public final class CompactPeers {
+    public static final int IPV4_ENTRY_LENGTH = 6;
+    public static final int IPV6_ENTRY_LENGTH = 18;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean ipv6;
+    private int size;
+    /**
+     * IPv4 addresses, null for IPv6 lists.
+     */
+    private int[] addresses;
+    /**
+     * IPv6 addresses as pairs of high and low 64 bits, null for IPv4 lists.
+     */
+    private long[] addresses6;
+    private short[] ports;
+
+    public CompactPeers(boolean ipv6) {
+        this(ipv6, INITIAL_CAPACITY);
+    }
+
+    public CompactPeers(boolean ipv6, int capacity) {
+        this.ipv6 = ipv6;
+        if (ipv6) {
+            addresses6 = new long[2 * capacity];
+        } else {
+            addresses = new int[capacity];
+        }
+        ports = new short[capacity];
+    }
+
+    public boolean isIPv6() {
+        return ipv6;
+    }
+
+    public int entryLength() {
+        return ipv6 ? IPV6_ENTRY_LENGTH : IPV4_ENTRY_LENGTH;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all peers, keeping the allocated capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("peer " + index + " of " + size);
+        }
+    }
+
+    private void checkFamily(boolean expectIPv6) {
+        if (ipv6 != expectIPv6) {
+            throw new IllegalStateException("not an " + (ipv6 ? "IPv4" : "IPv6") + " peer list");
+        }
+    }
+
+    public int getPort(int index) {
+        checkIndex(index);
+        return ports[index] & 0xffff;
+    }
+
+    /**
+     * @return IPv4 address as a big-endian int
+     */
+    public int getAddress(int index) {
+        checkFamily(false);
+        checkIndex(index);
+        return addresses[index];
+    }
+
+    /**
+     * @return first 8 bytes of an IPv6 address, big-endian
+     */
+    public long getAddressHigh(int index) {
+        checkFamily(true);
+        checkIndex(index);
+        return addresses6[2 * index];
+    }
+
+    /**
+     * @return last 8 bytes of an IPv6 address, big-endian
+     */
+    public long getAddressLow(int index) {
+        checkFamily(true);
+        checkIndex(index);
+        return addresses6[2 * index + 1];
+    }
+
+    /**
+     * Makes room for {@code capacity} peers in total.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > ports.length) {
+            ports = Arrays.copyOf(ports, capacity);
+            if (ipv6) {
+                addresses6 = Arrays.copyOf(addresses6, 2 * capacity);
+            } else {
+                addresses = Arrays.copyOf(addresses, capacity);
+            }
+        }
+    }
+
+    private int grow() {
+        if (size == ports.length) {
+            ensureCapacity(Math.max(INITIAL_CAPACITY, size * 2));
+        }
+        return size++;
+    }
+
+    private static short checkPort(int port) {
+        if (port < 0 || port > 0xffff) {
+            throw new IllegalArgumentException("port out of range: " + port);
+        }
+        return (short) port;
+    }
+
+    public void add(int address, int port) {
+        checkFamily(false);
+        short p = checkPort(port);
+        int index = grow();
+        addresses[index] = address;
+        ports[index] = p;
+    }
+
+    public void add(long addressHigh, long addressLow, int port) {
+        checkFamily(true);
+        short p = checkPort(port);
+        int index = grow();
+        addresses6[2 * index] = addressHigh;
+        addresses6[2 * index + 1] = addressLow;
+        ports[index] = p;
+    }
+
+    public void add(InetSocketAddress peer) {
+        byte[] address = peer.getAddress().getAddress();
+        if (address.length != (ipv6 ? 16 : 4)) {
+            throw new IllegalArgumentException("not an " + (ipv6 ? "IPv6" : "IPv4") + " address: " + peer);
+        }
+        if (ipv6) {
+            add(getLong(address, 0), getLong(address, 8), peer.getPort());
+        } else {
+            add(getInt(address, 0), peer.getPort());
+        }
+    }
+
+    public InetSocketAddress toSocketAddress(int index) {
+        checkIndex(index);
+        byte[] address = new byte[ipv6 ? 16 : 4];
+        if (ipv6) {
+            putLong(address, 0, addresses6[2 * index]);
+            putLong(address, 8, addresses6[2 * index + 1]);
+        } else {
+            putInt(address, 0, addresses[index]);
+        }
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(address), getPort(index));
+        } catch (UnknownHostException e) {
+            // only thrown for addresses of illegal length
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Appends the entries in {@code len} bytes of compact peer data.
+     */
+    public void read(byte[] data, int offset, int len) {
+        if (len % entryLength() != 0) {
+            throw new IllegalArgumentException("compact peer data of " + len + " bytes is not a multiple of " +
+                    entryLength());
+        }
+        ensureCapacity(size + len / entryLength());
+        for (int end = offset + len; offset < end; offset += entryLength()) {
+            decode(data, offset);
+        }
+    }
+
+    /**
+     * Appends the entries of the current byte string value of {@code p}; with a {@link
+     * com.fasterxml.jackson.dataformat.bencode.BEncodeParser} they are decoded as the payload is read.
+     */
+    public void read(JsonParser p) throws IOException {
+        Decoder decoder = new Decoder();
+        int len = p.readBinaryValue(decoder);
+        if (decoder.pending != 0) {
+            throw new JsonParseException(p, "compact peer data of " + len + " bytes is not a multiple of " +
+                    entryLength());
+        }
+    }
+
+    private void decode(byte[] data, int offset) {
+        if (ipv6) {
+            add(getLong(data, offset), getLong(data, offset + 8), getShort(data, offset + 16));
+        } else {
+            add(getInt(data, offset), getShort(data, offset + 4));
+        }
+    }
+
+    private void encode(int index, byte[] data, int offset) {
+        if (ipv6) {
+            putLong(data, offset, addresses6[2 * index]);
+            putLong(data, offset + 8, addresses6[2 * index + 1]);
+            offset += 16;
+        } else {
+            putInt(data, offset, addresses[index]);
+            offset += 4;
+        }
+        data[offset] = (byte) (ports[index] >> 8);
+        data[offset + 1] = (byte) ports[index];
+    }
+
+    public byte[] toByteArray() {
+        byte[] data = new byte[size * entryLength()];
+        for (int i = 0; i < size; i++) {
+            encode(i, data, i * entryLength());
+        }
+        return data;
+    }
+
+    /**
+     * @return compact form of the peers, encoded as it is read
+     */
+    public InputStream openStream() {
+        return new Encoder();
+    }
+
+    private static int getShort(byte[] data, int offset) {
+        return (data[offset] & 0xff) << 8 | data[offset + 1] & 0xff;
+    }
+
+    private static int getInt(byte[] data, int offset) {
+        return data[offset] << 24 | (data[offset + 1] & 0xff) << 16 | (data[offset + 2] & 0xff) << 8 |
+                data[offset + 3] & 0xff;
+    }
+
+    private static long getLong(byte[] data, int offset) {
+        return (long) getInt(data, offset) << 32 | getInt(data, offset + 4) & 0xffffffffL;
+    }
+
+    private static void putInt(byte[] data, int offset, int v) {
+        data[offset] = (byte) (v >> 24);
+        data[offset + 1] = (byte) (v >> 16);
+        data[offset + 2] = (byte) (v >> 8);
+        data[offset + 3] = (byte) v;
+    }
+
+    private static void putLong(byte[] data, int offset, long v) {
+        putInt(data, offset, (int) (v >> 32));
+        putInt(data, offset + 4, (int) v);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactPeers)) {
+            return false;
+        }
+        CompactPeers other = (CompactPeers) o;
+        if (ipv6 != other.ipv6 || size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (ports[i] != other.ports[i] || (ipv6 ?
+                    addresses6[2 * i] != other.addresses6[2 * i] || addresses6[2 * i + 1] != other.addresses6[2 * i + 1] :
+                    addresses[i] != other.addresses[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = ipv6 ? 1 : 0;
+        for (int i = 0; i < size; i++) {
+            h = 31 * h + ports[i];
+            h = 31 * h + (ipv6 ? Long.hashCode(addresses6[2 * i]) * 31 + Long.hashCode(addresses6[2 * i + 1]) :
+                    addresses[i]);
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CompactPeers[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            InetSocketAddress peer = toSocketAddress(i);
+            sb.append(ipv6 ? "[" + peer.getAddress().getHostAddress() + "]" : peer.getAddress().getHostAddress())
+                    .append(':').append(peer.getPort());
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Decodes entries as payload chunks arrive; an entry split between chunks is collected in a small buffer.
+     */
+    private final class Decoder extends OutputStream {
+        private byte[] partial;
+        private int pending;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            final int entryLength = entryLength();
+            ensureCapacity(size + (pending + len) / entryLength);
+            if (pending > 0) {
+                int n = Math.min(entryLength - pending, len);
+                System.arraycopy(b, off, partial, pending, n);
+                off += n;
+                len -= n;
+                if ((pending += n) < entryLength) {
+                    return;
+                }
+                decode(partial, 0);
+                pending = 0;
+            }
+            for (; len >= entryLength; off += entryLength, len -= entryLength) {
+                decode(b, off);
+            }
+            if (len > 0) {
+                if (partial == null) {
+                    partial = new byte[entryLength];
+                }
+                System.arraycopy(b, off, partial, 0, len);
+                pending = len;
+            }
+        }
+    }
+
+    /**
+     * Encodes entries straight into the reader's buffer; an entry split between reads goes through a small buffer.
+     */
+    private final class Encoder extends InputStream {
+        private final long length = (long) size * entryLength();
+        private long position;
+        private byte[] partial;
+
+        @Override
+        public int read() {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= length) {
+                return -1;
+            }
+            final int entryLength = entryLength();
+            final int n = (int) Math.min(len, length - position);
+            for (int done = 0; done < n; ) {
+                int index = (int) (position / entryLength);
+                int within = (int) (position % entryLength);
+                int step;
+                if (within == 0 && n - done >= entryLength) {
+                    encode(index, b, off + done);
+                    step = entryLength;
+                } else {
+                    if (partial == null) {
+                        partial = new byte[entryLength];
+                    }
+                    encode(index, partial, 0);
+                    step = Math.min(entryLength - within, n - done);
+                    System.arraycopy(partial, within, b, off + done, step);
+                }
+                done += step;
+                position += step;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(length - position, Integer.MAX_VALUE);
+        }
+    }
+
+    public static class Serializer extends StdSerializer<CompactPeers> {
+        private static final long serialVersionUID = 1L;
+
+        public Serializer() {
+            super(CompactPeers.class);
+        }
+
+        @Override
+        public void serialize(CompactPeers value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeBinary(value.openStream(), value.size() * value.entryLength());
+        }
+    }
+
+    /**
+     * Picks the format by the name of the property, {@code peers6} meaning IPv6.
+     */
+    public static class Deserializer extends StdDeserializer<CompactPeers> implements ContextualDeserializer {
+        private static final long serialVersionUID = 1L;
+
+        private final Boolean ipv6;
+
+        public Deserializer() {
+            this(null);
+        }
+
+        protected Deserializer(Boolean ipv6) {
+            super(CompactPeers.class);
+            this.ipv6 = ipv6;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) {
+            if (ipv6 != null) {
+                return this;
+            }
+            return new Deserializer(property != null && "peers6".equals(property.getName()));
+        }
+
+        @Override
+        public CompactPeers deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.getCurrentToken() != JsonToken.VALUE_STRING && p.getCurrentToken() != JsonToken.VALUE_EMBEDDED_OBJECT) {
+                return (CompactPeers) ctxt.handleUnexpectedToken(CompactPeers.class, p);
+            }
+            CompactPeers peers = new CompactPeers(Boolean.TRUE.equals(ipv6));
+            peers.read(p);
+            return peers;
+        }
+    }
+
+    public static class Ipv4Deserializer extends Deserializer {
+        private static final long serialVersionUID = 1L;
+
+        public Ipv4Deserializer() {
+            super(false);
+        }
+    }
+
+    public static class Ipv6Deserializer extends Deserializer {
+        private static final long serialVersionUID = 1L;
+
+        public Ipv6Deserializer() {
+            super(true);
+        }
+    }
+}
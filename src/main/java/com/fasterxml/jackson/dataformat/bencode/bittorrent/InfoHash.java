@@ -0,0 +1,277 @@
+package com.fasterxml.jackson.dataformat.bencode.bittorrent;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeGenerator;
+import com.fasterxml.jackson.dataformat.bencode.BinaryKeyDeserializer;
+
+import java.io.IOException;
+
+/**
+ * SHA-1 (20 bytes, BEP 3) or SHA-256 (32 bytes, BEP 52) info hash, held in four {@code long} fields rather than an
+ * array, so a hash is a single small object; scrape responses with many thousands of entries key their {@code files}
+ * dictionary by these. Instances are immutable and ordered as their bytes compared unsigned, which is the order of
+ * bencoded dictionary keys.
+ * <p>
+ * As a value an info hash is a byte string. As a dictionary key it is read from and written to {@link
+ * com.fasterxml.jackson.dataformat.bencode.BEncodeParser} and {@link BEncodeGenerator} as raw bytes, see {@link
+ * com.fasterxml.jackson.dataformat.bencode.BEncodeModule}; other formats use hexadecimal keys.
+ */
+@JsonSerialize(using = InfoHash.Serializer.class)
+@JsonDeserialize(using = InfoHash.Deserializer.class)
+public final class InfoHash implements Comparable<InfoHash> {
+    public static final int SHA1_LENGTH = 20;
+    public static final int SHA256_LENGTH = 32;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final int length;
+    /**
+     * Big endian, bytes past {@link #length} are zero.
+     */
+    private final long h0, h1, h2, h3;
+
+    private InfoHash(int length, long h0, long h1, long h2, long h3) {
+        this.length = length;
+        this.h0 = h0;
+        this.h1 = h1;
+        this.h2 = h2;
+        this.h3 = h3;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code len} is neither 20 nor 32
+     */
+    public static InfoHash valueOf(byte[] bytes, int offset, int len) {
+        checkLength(len);
+        return new InfoHash(len, load(bytes, offset, 0, len), load(bytes, offset, 8, len),
+                load(bytes, offset, 16, len), load(bytes, offset, 24, len));
+    }
+
+    /**
+     * @return big endian word of the up to 8 bytes from {@code index}, zero padded past {@code len}
+     */
+    private static long load(byte[] bytes, int offset, int index, int len) {
+        long h = 0;
+        for (int i = 0; i < 8; i++) {
+            h <<= 8;
+            if (index + i < len) {
+                h |= bytes[offset + index + i] & 0xffL;
+            }
+        }
+        return h;
+    }
+
+    public static InfoHash valueOf(byte[] bytes) {
+        return valueOf(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Parses 40 or 64 hexadecimal digits, in either case.
+     *
+     * @throws IllegalArgumentException if {@code hex} is not such a string
+     */
+    public static InfoHash fromHex(CharSequence hex) {
+        if ((hex.length() & 1) != 0) {
+            throw new IllegalArgumentException("odd number of hexadecimal digits: " + hex);
+        }
+        final int len = hex.length() / 2;
+        checkLength(len);
+        long[] h = new long[4];
+        for (int i = 0; i < len; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("not a hexadecimal string: " + hex);
+            }
+            h[i >> 3] |= (long) (high << 4 | low) << (56 - ((i & 7) << 3));
+        }
+        return new InfoHash(len, h[0], h[1], h[2], h[3]);
+    }
+
+    private static void checkLength(int len) {
+        if (len != SHA1_LENGTH && len != SHA256_LENGTH) {
+            throw new IllegalArgumentException("info hashes are 20 or 32 bytes long, not " + len);
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isSha256() {
+        return length == SHA256_LENGTH;
+    }
+
+    /**
+     * @return byte at {@code index}, unsigned
+     */
+    public int get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return byteAt(index);
+    }
+
+    private int byteAt(int index) {
+        final long h;
+        switch (index >> 3) {
+            case 0:
+                h = h0;
+                break;
+            case 1:
+                h = h1;
+                break;
+            case 2:
+                h = h2;
+                break;
+            default:
+                h = h3;
+        }
+        return (int) (h >>> (56 - ((index & 7) << 3))) & 0xff;
+    }
+
+    /**
+     * Copies the hash to {@code dest}, which must have room for {@link #length()} bytes at {@code offset}.
+     */
+    public void copyTo(byte[] dest, int offset) {
+        for (int i = 0; i < length; i++) {
+            dest[offset + i] = (byte) byteAt(i);
+        }
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[length];
+        copyTo(bytes, 0);
+        return bytes;
+    }
+
+    public String toHex() {
+        char[] chars = new char[2 * length];
+        for (int i = 0; i < length; i++) {
+            int b = byteAt(i);
+            chars[2 * i] = HEX[b >> 4];
+            chars[2 * i + 1] = HEX[b & 0xf];
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public int compareTo(InfoHash o) {
+        // trailing zeros of a SHA-1 hash compare lower or equal, the length breaks ties as for byte strings
+        int c = Long.compareUnsigned(h0, o.h0);
+        if (c == 0 && (c = Long.compareUnsigned(h1, o.h1)) == 0 && (c = Long.compareUnsigned(h2, o.h2)) == 0 &&
+                (c = Long.compareUnsigned(h3, o.h3)) == 0) {
+            c = length - o.length;
+        }
+        return c;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof InfoHash)) {
+            return false;
+        }
+        InfoHash that = (InfoHash) o;
+        return length == that.length && h0 == that.h0 && h1 == that.h1 && h2 == that.h2 && h3 == that.h3;
+    }
+
+    /**
+     * Hashes are uniformly distributed, so some of their bits make a good hash code.
+     */
+    @Override
+    public int hashCode() {
+        return (int) (h0 >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    public static class Serializer extends StdSerializer<InfoHash> {
+        private static final long serialVersionUID = 1L;
+
+        public Serializer() {
+            super(InfoHash.class);
+        }
+
+        @Override
+        public void serialize(InfoHash value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            byte[] bytes = value.toByteArray();
+            gen.writeBinary(bytes, 0, bytes.length);
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<InfoHash> {
+        private static final long serialVersionUID = 1L;
+
+        public Deserializer() {
+            super(InfoHash.class);
+        }
+
+        @Override
+        public InfoHash deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.getCurrentToken() != JsonToken.VALUE_STRING && p.getCurrentToken() != JsonToken.VALUE_EMBEDDED_OBJECT) {
+                return (InfoHash) ctxt.handleUnexpectedToken(InfoHash.class, p);
+            }
+            byte[] bytes = p.getBinaryValue();
+            if (bytes.length != SHA1_LENGTH && bytes.length != SHA256_LENGTH) {
+                return (InfoHash) ctxt.handleWeirdStringValue(InfoHash.class, null,
+                        "info hashes are 20 or 32 bytes long, not %d", bytes.length);
+            }
+            return valueOf(bytes);
+        }
+    }
+
+    /**
+     * Writes raw bytes to {@link BEncodeGenerator}, hexadecimal digits otherwise.
+     */
+    public static class KeySerializer extends StdSerializer<InfoHash> {
+        private static final long serialVersionUID = 1L;
+
+        public KeySerializer() {
+            super(InfoHash.class);
+        }
+
+        @Override
+        public void serialize(InfoHash value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (gen instanceof BEncodeGenerator) {
+                // referenced by the generator until the next key, so not reusable
+                byte[] bytes = value.toByteArray();
+                ((BEncodeGenerator) gen).writeFieldName(bytes, 0, bytes.length);
+            } else {
+                gen.writeFieldName(value.toHex());
+            }
+        }
+    }
+
+    public static class KeyDeserializer extends BinaryKeyDeserializer {
+        @Override
+        public Object deserializeKey(byte[] key, int offset, int len, DeserializationContext ctxt) throws IOException {
+            if (len != SHA1_LENGTH && len != SHA256_LENGTH) {
+                return ctxt.handleWeirdKey(InfoHash.class, null, "info hashes are 20 or 32 bytes long, not %d", len);
+            }
+            return valueOf(key, offset, len);
+        }
+
+        @Override
+        public Object deserializeKey(String key, DeserializationContext ctxt) throws IOException {
+            try {
+                return fromHex(key);
+            } catch (IllegalArgumentException e) {
+                return ctxt.handleWeirdKey(InfoHash.class, key, e.getMessage());
+            }
+        }
+    }
+}
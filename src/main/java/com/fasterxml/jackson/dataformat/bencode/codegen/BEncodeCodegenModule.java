@@ -0,0 +1,74 @@
+package com.fasterxml.jackson.dataformat.bencode.codegen;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.deser.Deserializers;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import com.fasterxml.jackson.dataformat.bencode.PackageVersion;
+
+import java.lang.reflect.Field;
+
+/**
+ * Makes serializers and deserializers generated for {@link BEncodeSerializable} classes available to a mapper. Classes
+ * without generated code are left to the regular bean (de)serializers.
+ */
+public class BEncodeCodegenModule extends SimpleModule {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Suffix of the generated class, appended to the binary name of the annotated class with {@code $} replaced by
+     * {@code _}.
+     */
+    static final String CODEC_SUFFIX = "_BEncodeCodec";
+
+    public BEncodeCodegenModule() {
+        super("BEncodeCodegenModule", PackageVersion.VERSION);
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        context.addSerializers(new Serializers.Base() {
+            @Override
+            public JsonSerializer<?> findSerializer(
+                    SerializationConfig config, JavaType type, BeanDescription beanDesc) {
+                return (JsonSerializer<?>) lookup(type.getRawClass(), "SERIALIZER");
+            }
+        });
+        context.addDeserializers(new Deserializers.Base() {
+            @Override
+            public JsonDeserializer<?> findBeanDeserializer(
+                    JavaType type, DeserializationConfig config, BeanDescription beanDesc) throws JsonMappingException {
+                return (JsonDeserializer<?>) lookup(type.getRawClass(), "DESERIALIZER");
+            }
+        });
+    }
+
+    /**
+     * Mappers cache (de)serializers, so the generated class is looked up once per type.
+     */
+    static Object lookup(Class<?> type, String field) {
+        if (!type.isAnnotationPresent(BEncodeSerializable.class)) {
+            return null;
+        }
+        String name = type.getName();
+        int packageEnd = name.lastIndexOf('.');
+        String codecName = name.substring(0, packageEnd + 1) + name.substring(packageEnd + 1).replace('$', '_') +
+                CODEC_SUFFIX;
+        try {
+            Field f = Class.forName(codecName, true, type.getClassLoader()).getField(field);
+            return f.get(null);
+        } catch (ClassNotFoundException e) {
+            // annotation processor did not run
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("malformed generated class " + codecName, e);
+        }
+    }
+}
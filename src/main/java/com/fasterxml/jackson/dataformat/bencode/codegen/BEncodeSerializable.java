@@ -0,0 +1,23 @@
+package com.fasterxml.jackson.dataformat.bencode.codegen;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which {@link BEncodeSerializableProcessor} generates a serializer and a deserializer at build
+ * time; they are picked up by {@link BEncodeCodegenModule}.
+ * <p>
+ * The class must be a non-private top level or static nested class with a non-private no-argument constructor.
+ * Every non-static, non-transient field not annotated with {@code @JsonIgnore} is a property, named after the field or
+ * its {@code @JsonProperty} value; fields must be neither private nor final. Integral primitives, booleans,
+ * {@code String} and {@code byte[]} are read and written directly, other types are delegated to databind. Null
+ * references are not written.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface BEncodeSerializable {
+}
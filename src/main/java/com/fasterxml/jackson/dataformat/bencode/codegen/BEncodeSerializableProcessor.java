@@ -0,0 +1,402 @@
+package com.fasterxml.jackson.dataformat.bencode.codegen;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a serializer and a deserializer for every class annotated with {@link BEncodeSerializable}. Properties
+ * are sorted by their encoded names at build time, so the serializer writes dictionary keys in order without any
+ * checks or buffering, and the deserializer matches keys by raw bytes, trying the next key in order first. Fields
+ * inherited from superclasses are properties as well, as for Jackson's bean serializers.
+ * <p>
+ * The processor is not registered as a service; it has to be named explicitly, e.g. in the
+ * {@code annotationProcessors} configuration of the Maven compiler plugin.
+ */
+@SupportedAnnotationTypes("com.fasterxml.jackson.dataformat.bencode.codegen.BEncodeSerializable")
+public class BEncodeSerializableProcessor extends AbstractProcessor {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private enum Kind {
+        INT("gen.writeNumber(%s)", "parser.getIntValue()"),
+        LONG("gen.writeNumber(%s)", "parser.getLongValue()"),
+        SHORT("gen.writeNumber(%s)", "(short) parser.getIntValue()"),
+        BYTE("gen.writeNumber(%s)", "(byte) parser.getIntValue()"),
+        BOOLEAN("gen.writeBoolean(%s)", "parser.getValueAsBoolean()"),
+        STRING("gen.writeString(%s)", "parser.getText()"),
+        BINARY("gen.writeBinary(%s)", "parser.getBinaryValue()"),
+        OTHER("provider.defaultSerializeValue(%s, gen)", null);
+
+        final String write;
+        final String read;
+
+        Kind(String write, String read) {
+            this.write = write;
+            this.read = read;
+        }
+
+        boolean isPrimitive() {
+            return ordinal() <= BOOLEAN.ordinal();
+        }
+    }
+
+    private static final class Property {
+        final String field;
+        final String name;
+        final byte[] encodedName;
+        final Kind kind;
+        final String type;
+
+        Property(String field, String name, Kind kind, String type) {
+            this.field = field;
+            this.name = name;
+            this.encodedName = name.getBytes(UTF_8);
+            this.kind = kind;
+            this.type = type;
+        }
+    }
+
+    private static final Comparator<Property> ENCODED_ORDER = new Comparator<Property>() {
+        @Override
+        public int compare(Property a, Property b) {
+            final int len = Math.min(a.encodedName.length, b.encodedName.length);
+            for (int i = 0; i < len; i++) {
+                int diff = (a.encodedName[i] & 0xff) - (b.encodedName[i] & 0xff);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return a.encodedName.length - b.encodedName.length;
+        }
+    };
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(BEncodeSerializable.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@BEncodeSerializable is only supported on classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<Property> properties = collectProperties(type);
+            if (properties != null) {
+                try {
+                    generate(type, properties);
+                } catch (IOException e) {
+                    error(type, "could not write generated codec: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * @return properties in encoded order, null if the class is not supported
+     */
+    private List<Property> collectProperties(TypeElement type) {
+        boolean valid = true;
+        if (type.getModifiers().contains(Modifier.PRIVATE) || type.getModifiers().contains(Modifier.ABSTRACT) ||
+                type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC) ||
+                type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "@BEncodeSerializable class must be concrete, non-private and static if nested");
+            valid = false;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "@BEncodeSerializable class must not have type parameters");
+            valid = false;
+        }
+        boolean constructor = false;
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            constructor |= c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE);
+        }
+        if (!constructor) {
+            error(type, "@BEncodeSerializable class needs a non-private no-argument constructor");
+            valid = false;
+        }
+
+        List<Property> properties = new ArrayList<Property>();
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        for (TypeElement declaring = type; declaring != null; declaring = superclass(declaring)) {
+            final boolean inherited = declaring != type;
+            final boolean samePackage = processingEnv.getElementUtils().getPackageOf(declaring).equals(pkg);
+            for (VariableElement field : ElementFilter.fieldsIn(declaring.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT) ||
+                        field.getAnnotation(JsonIgnore.class) != null) {
+                    continue;
+                }
+                // inherited fields are reported on the annotated class, their own may come from a class file
+                final Element at = inherited ? type : field;
+                final String prefix = inherited ?
+                        "inherited field " + declaring.getSimpleName() + "." + field.getSimpleName() + ": " : "";
+                if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+                    error(at, prefix + "property fields must be neither private nor final");
+                    valid = false;
+                    continue;
+                }
+                if (!samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+                    error(at, prefix + "property fields declared in another package must be public");
+                    valid = false;
+                    continue;
+                }
+                // type variables of generic superclasses resolved as seen from the annotated class
+                TypeMirror fieldType = processingEnv.getTypeUtils().asMemberOf((DeclaredType) type.asType(), field);
+                Kind kind = kindOf(fieldType);
+                if (kind == null) {
+                    error(at, prefix + "floating point types are not supported by BEncode specification");
+                    valid = false;
+                    continue;
+                }
+                JsonProperty renamed = field.getAnnotation(JsonProperty.class);
+                String name = renamed != null && !renamed.value().isEmpty() ? renamed.value() :
+                        field.getSimpleName().toString();
+                properties.add(new Property(field.getSimpleName().toString(), name, kind, fieldType.toString()));
+            }
+        }
+        Collections.sort(properties, ENCODED_ORDER);
+        for (int i = 1; i < properties.size(); i++) {
+            if (ENCODED_ORDER.compare(properties.get(i - 1), properties.get(i)) == 0) {
+                error(type, "duplicate property name \"" + properties.get(i).name + "\"");
+                valid = false;
+            }
+        }
+        return valid ? properties : null;
+    }
+
+    /**
+     * @return superclass declaring fields to look at, null once {@link Object} is reached
+     */
+    private static TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private static Kind kindOf(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+                return Kind.INT;
+            case LONG:
+                return Kind.LONG;
+            case SHORT:
+                return Kind.SHORT;
+            case BYTE:
+                return Kind.BYTE;
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case FLOAT:
+            case DOUBLE:
+                return null;
+            case ARRAY:
+                return ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE ? Kind.BINARY : Kind.OTHER;
+            default:
+                return "java.lang.String".equals(type.toString()) ? Kind.STRING : Kind.OTHER;
+        }
+    }
+
+    private void generate(TypeElement type, List<Property> properties) throws IOException {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String codecName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$', '_') +
+                BEncodeCodegenModule.CODEC_SUFFIX;
+        String bean = type.getQualifiedName().toString();
+
+        try (PrintWriter w = new PrintWriter(processingEnv.getFiler().createSourceFile(
+                packageName.isEmpty() ? codecName : packageName + "." + codecName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                w.println("package " + packageName + ";");
+                w.println();
+            }
+            w.println("/**");
+            w.println(" * Generated by " + BEncodeSerializableProcessor.class.getSimpleName() + " for {@link " + bean +
+                    "}, do not edit.");
+            w.println(" */");
+            w.println("public final class " + codecName + " {");
+            w.println("    public static final com.fasterxml.jackson.databind.JsonSerializer<" + bean +
+                    "> SERIALIZER = new Serializer();");
+            w.println("    public static final com.fasterxml.jackson.databind.JsonDeserializer<" + bean +
+                    "> DESERIALIZER = new Deserializer();");
+            w.println();
+            for (int i = 0; i < properties.size(); i++) {
+                w.println("    private static final com.fasterxml.jackson.dataformat.bencode.BEncodeSerializedString " +
+                        "NAME_" + i + " = new com.fasterxml.jackson.dataformat.bencode.BEncodeSerializedString(" +
+                        literal(properties.get(i).name) + ");");
+            }
+            w.println("    private static final byte[][] KEYS = {");
+            for (int i = 0; i < properties.size(); i++) {
+                w.println("            NAME_" + i + ".asUnquotedUTF8(),");
+            }
+            w.println("    };");
+            for (int i = 0; i < properties.size(); i++) {
+                Property p = properties.get(i);
+                if (p.kind == Kind.OTHER) {
+                    w.println("    private static final com.fasterxml.jackson.core.type.TypeReference<" + p.type +
+                            "> TYPE_" + i + " = new com.fasterxml.jackson.core.type.TypeReference<" + p.type +
+                            ">() {};");
+                }
+            }
+            w.println();
+            w.println("    private " + codecName + "() {");
+            w.println("    }");
+            w.println();
+            writeMatch(w, properties);
+            w.println();
+            writeSerializer(w, bean, properties);
+            w.println();
+            writeDeserializer(w, bean, properties);
+            w.println("}");
+        }
+    }
+
+    private static void writeMatch(PrintWriter w, List<Property> properties) {
+        w.println("    private static int match(com.fasterxml.jackson.core.JsonParser parser, int expected) " +
+                "throws java.io.IOException {");
+        w.println("        if (parser instanceof com.fasterxml.jackson.dataformat.bencode.BEncodeParser) {");
+        w.println("            byte[] key = ((com.fasterxml.jackson.dataformat.bencode.BEncodeParser) parser)" +
+                ".getCurrentNameBytes();");
+        w.println("            if (expected < KEYS.length && java.util.Arrays.equals(key, KEYS[expected])) {");
+        w.println("                return expected;");
+        w.println("            }");
+        w.println("            for (int i = 0; i < KEYS.length; i++) {");
+        w.println("                if (java.util.Arrays.equals(key, KEYS[i])) {");
+        w.println("                    return i;");
+        w.println("                }");
+        w.println("            }");
+        w.println("            return -1;");
+        w.println("        }");
+        w.println("        switch (parser.getCurrentName()) {");
+        for (int i = 0; i < properties.size(); i++) {
+            w.println("            case " + literal(properties.get(i).name) + ":");
+            w.println("                return " + i + ";");
+        }
+        w.println("            default:");
+        w.println("                return -1;");
+        w.println("        }");
+        w.println("    }");
+    }
+
+    private static void writeSerializer(PrintWriter w, String bean, List<Property> properties) {
+        w.println("    static final class Serializer extends com.fasterxml.jackson.databind.ser.std.StdSerializer<" +
+                bean + "> {");
+        w.println("        private static final long serialVersionUID = 1L;");
+        w.println();
+        w.println("        Serializer() {");
+        w.println("            super(" + bean + ".class);");
+        w.println("        }");
+        w.println();
+        w.println("        @Override");
+        w.println("        public void serialize(" + bean + " value, com.fasterxml.jackson.core.JsonGenerator gen, " +
+                "com.fasterxml.jackson.databind.SerializerProvider provider) throws java.io.IOException {");
+        w.println("            gen.writeStartObject();");
+        for (int i = 0; i < properties.size(); i++) {
+            Property p = properties.get(i);
+            String indent = "            ";
+            if (!p.kind.isPrimitive()) {
+                w.println(indent + "if (value." + p.field + " != null) {");
+                indent += "    ";
+            }
+            w.println(indent + "gen.writeFieldName(NAME_" + i + ");");
+            w.println(indent + String.format(p.kind.write, "value." + p.field) + ";");
+            if (!p.kind.isPrimitive()) {
+                w.println("            }");
+            }
+        }
+        w.println("            gen.writeEndObject();");
+        w.println("        }");
+        w.println("    }");
+    }
+
+    private static void writeDeserializer(PrintWriter w, String bean, List<Property> properties) {
+        w.println("    static final class Deserializer extends com.fasterxml.jackson.databind.deser.std.StdDeserializer<" +
+                bean + "> {");
+        w.println("        private static final long serialVersionUID = 1L;");
+        w.println();
+        w.println("        Deserializer() {");
+        w.println("            super(" + bean + ".class);");
+        w.println("        }");
+        w.println();
+        w.println("        @Override");
+        w.println("        public " + bean + " deserialize(com.fasterxml.jackson.core.JsonParser parser, " +
+                "com.fasterxml.jackson.databind.DeserializationContext ctxt) throws java.io.IOException {");
+        w.println("            if (parser.getCurrentToken() != com.fasterxml.jackson.core.JsonToken.START_OBJECT) {");
+        w.println("                return (" + bean + ") ctxt.handleUnexpectedToken(" + bean + ".class, parser);");
+        w.println("            }");
+        w.println("            " + bean + " bean = new " + bean + "();");
+        w.println("            int expected = 0;");
+        w.println("            while (parser.nextToken() == com.fasterxml.jackson.core.JsonToken.FIELD_NAME) {");
+        w.println("                int index = match(parser, expected);");
+        w.println("                parser.nextToken();");
+        w.println("                switch (index) {");
+        for (int i = 0; i < properties.size(); i++) {
+            Property p = properties.get(i);
+            String read = p.kind == Kind.OTHER ?
+                    "ctxt.readValue(parser, ctxt.getTypeFactory().constructType(TYPE_" + i + "))" : p.kind.read;
+            w.println("                    case " + i + ":");
+            w.println("                        bean." + p.field + " = " + read + ";");
+            w.println("                        break;");
+        }
+        w.println("                    default:");
+        w.println("                        ctxt.handleUnknownProperty(parser, this, bean, parser.getCurrentName());");
+        w.println("                        continue;");
+        w.println("                }");
+        w.println("                expected = index + 1;");
+        w.println("            }");
+        w.println("            return bean;");
+        w.println("        }");
+        w.println("    }");
+    }
+
+    private static String literal(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,295 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.bencode.util.CharsetUtils;
+import com.fasterxml.jackson.dataformat.bencode.util.Utf8;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Structural state of a parser or generator: the nesting of lists and dictionaries, whether a dictionary expects a
+ * key or a value, the index of the current entry and the last key of each dictionary. State is kept in arrays
+ * indexed by depth which are reused as containers are entered and left, so no objects are allocated per container.
+ * {@link JsonStreamContext} views are only created when asked for via {@link #getContext()}.
+ */
+public class BContextStack {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int INITIAL_DEPTH = 16;
+
+    private static final byte ROOT = 0;
+    private static final byte LIST = 1;
+    private static final byte DICTIONARY = 2;
+
+    private int depth;
+    private byte[] types = new byte[INITIAL_DEPTH];
+    private boolean[] expectingKey = new boolean[INITIAL_DEPTH];
+    private int[] indexes = new int[INITIAL_DEPTH];
+    private String[] keys = new String[INITIAL_DEPTH];
+    private byte[][] keyBytes = new byte[INITIAL_DEPTH][];
+    private int[] keyOffsets = new int[INITIAL_DEPTH];
+    private int[] keyLengths = new int[INITIAL_DEPTH];
+    private View[] views;
+
+    public BContextStack() {
+        types[0] = ROOT;
+        indexes[0] = -1;
+    }
+
+    public void pushDictionary() {
+        push(DICTIONARY);
+        expectingKey[depth] = true;
+    }
+
+    public void pushList() {
+        push(LIST);
+        expectingKey[depth] = false;
+    }
+
+    private void push(byte type) {
+        if (++depth == types.length) {
+            int size = depth * 2;
+            types = Arrays.copyOf(types, size);
+            expectingKey = Arrays.copyOf(expectingKey, size);
+            indexes = Arrays.copyOf(indexes, size);
+            keys = Arrays.copyOf(keys, size);
+            keyBytes = Arrays.copyOf(keyBytes, size);
+            keyOffsets = Arrays.copyOf(keyOffsets, size);
+            keyLengths = Arrays.copyOf(keyLengths, size);
+            if (views != null) {
+                views = Arrays.copyOf(views, size);
+            }
+        }
+        types[depth] = type;
+        indexes[depth] = -1;
+        keys[depth] = null;
+        keyBytes[depth] = null;
+        refreshView();
+    }
+
+    /**
+     * Leaves the current list or dictionary.
+     */
+    public void pop() throws IOException {
+        if (depth == 0) {
+            throw new IOException("trying to access parent of root");
+        }
+        if (types[depth] == DICTIONARY && !expectingKey[depth]) {
+            throw new IOException("uneven dictionary contents");
+        }
+        keys[depth] = null;
+        keyBytes[depth] = null;
+        depth--;
+    }
+
+    public void valueNext() throws IOException {
+        if (types[depth] == DICTIONARY) {
+            if (expectingKey[depth]) {
+                throw new IOException("unexpected value");
+            }
+            expectingKey[depth] = true;
+        } else {
+            indexes[depth]++;
+            refreshView();
+        }
+    }
+
+    /**
+     * Keys are ordered as their UTF-8 encodings; comparing by code points gives the same result without encoding.
+     */
+    public void keyNext(String key) throws IOException {
+        checkKeyExpected();
+        if (keyBytes[depth] != null) {
+            byte[] encoded = key.getBytes(UTF_8);
+            checkOrder(compareBytes(keyBytes[depth], keyOffsets[depth], keyLengths[depth], encoded, 0, encoded.length));
+        } else if (keys[depth] != null) {
+            checkOrder(Utf8.compare(keys[depth], key));
+        }
+        setKey(key, null, 0, 0);
+    }
+
+    /**
+     * Same as {@link #keyNext(String)}, ordering is checked on the UTF-8 encoded key. The key bytes are referenced,
+     * not copied.
+     */
+    public void keyNext(String key, byte[] bytes, int offset, int len) throws IOException {
+        checkKeyExpected();
+        if (keyBytes[depth] != null) {
+            checkOrder(compareBytes(keyBytes[depth], keyOffsets[depth], keyLengths[depth], bytes, offset, len));
+        } else if (keys[depth] != null) {
+            byte[] prev = keys[depth].getBytes(UTF_8);
+            checkOrder(compareBytes(prev, 0, prev.length, bytes, offset, len));
+        }
+        setKey(key, bytes, offset, len);
+    }
+
+    /**
+     * Same as {@link #keyNext(String, byte[], int, int)} for keys read from input; the key is only decoded if its
+     * name is asked for.
+     */
+    public void keyNext(byte[] bytes, int offset, int len) throws IOException {
+        keyNext(null, bytes, offset, len);
+    }
+
+    /**
+     * Same as {@link #keyNext(String)} without checking key order, for dictionaries sorted after being written.
+     */
+    public void keyNextUnordered(String key) throws IOException {
+        checkKeyExpected();
+        setKey(key, null, 0, 0);
+    }
+
+    /**
+     * Same as {@link #keyNext(String, byte[], int, int)} without checking key order.
+     */
+    public void keyNextUnordered(String key, byte[] bytes, int offset, int len) throws IOException {
+        checkKeyExpected();
+        setKey(key, bytes, offset, len);
+    }
+
+    private void checkKeyExpected() throws IOException {
+        if (types[depth] != DICTIONARY) {
+            throw new IOException("not in dictionary");
+        }
+        if (!expectingKey[depth]) {
+            throw new IOException("unexpected key");
+        }
+    }
+
+    private static void checkOrder(int compareResult) throws IOException {
+        if (compareResult >= 0) {
+            throw new IOException(compareResult == 0 ? "duplicate dictionary key" : "keys must be in lexicographically ascending order");
+        }
+    }
+
+    private void setKey(String key, byte[] bytes, int offset, int len) {
+        keys[depth] = key;
+        keyBytes[depth] = bytes;
+        keyOffsets[depth] = offset;
+        keyLengths[depth] = len;
+        expectingKey[depth] = false;
+        indexes[depth]++;
+        refreshView();
+    }
+
+    private void refreshView() {
+        View view;
+        if (views != null && (view = views[depth]) != null) {
+            view.refresh();
+        }
+    }
+
+    static int compareBytes(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+        final int len = Math.min(aLength, bLength);
+        for (int i = 0; i < len; i++) {
+            int diff = (a[aOffset + i] & 0xff) - (b[bOffset + i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    public boolean inRoot() {
+        return depth == 0;
+    }
+
+    public boolean inArray() {
+        return types[depth] == LIST;
+    }
+
+    public boolean inObject() {
+        return types[depth] == DICTIONARY;
+    }
+
+    /**
+     * @return true if the current container is a dictionary waiting for a key
+     */
+    public boolean expectsKey() {
+        return types[depth] == DICTIONARY && expectingKey[depth];
+    }
+
+    public JsonToken getStartToken() {
+        return types[depth] == DICTIONARY ? JsonToken.START_OBJECT : types[depth] == LIST ? JsonToken.START_ARRAY : null;
+    }
+
+    public JsonToken getEndToken() {
+        return types[depth] == DICTIONARY ? JsonToken.END_OBJECT : types[depth] == LIST ? JsonToken.END_ARRAY : null;
+    }
+
+    /**
+     * @return last key of the current dictionary, null outside of dictionaries
+     */
+    public String getCurrentName() {
+        return nameAt(depth);
+    }
+
+    private String nameAt(int level) {
+        if (keys[level] == null && keyBytes[level] != null) {
+            byte[] bytes = keyBytes[level];
+            int offset = keyOffsets[level], len = keyLengths[level];
+            keys[level] = CharsetUtils.decode(offset == 0 && len == bytes.length ? bytes :
+                    Arrays.copyOfRange(bytes, offset, offset + len));
+        }
+        return keys[level];
+    }
+
+    /**
+     * @return view of the current context, reflecting later changes; views are reused for containers at the same depth
+     */
+    public JsonStreamContext getContext() {
+        return viewAt(depth);
+    }
+
+    private View viewAt(int level) {
+        if (views == null) {
+            views = new View[types.length];
+        }
+        View view = views[level];
+        if (view == null) {
+            view = views[level] = new View(this, level);
+        }
+        return view.refresh();
+    }
+
+    /**
+     * {@link JsonStreamContext} backed by one level of the stack. Type and index live in fields of the base class, so
+     * they are refreshed whenever they change.
+     */
+    static final class View extends JsonStreamContext {
+        private final BContextStack stack;
+        private final int level;
+
+        View(BContextStack stack, int level) {
+            this.stack = stack;
+            this.level = level;
+        }
+
+        View refresh() {
+            switch (stack.types[level]) {
+                case DICTIONARY:
+                    _type = TYPE_OBJECT;
+                    break;
+                case LIST:
+                    _type = TYPE_ARRAY;
+                    break;
+                default:
+                    _type = TYPE_ROOT;
+            }
+            _index = stack.indexes[level];
+            return this;
+        }
+
+        @Override
+        public JsonStreamContext getParent() {
+            return level == 0 ? null : stack.viewAt(level - 1);
+        }
+
+        @Override
+        public String getCurrentName() {
+            return stack.nameAt(level);
+        }
+    }
+}
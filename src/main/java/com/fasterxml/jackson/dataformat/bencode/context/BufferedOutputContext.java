@@ -0,0 +1,425 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Output context collecting output in a byte array. Subclasses decide what happens when the buffer fills up: it may
+ * be drained into the target ({@link StreamOutputContext}, {@link ChannelOutputContext}) or replaced by a larger one
+ * ({@link ByteBufferOutputContext}).
+ */
+public abstract class BufferedOutputContext implements OutputContext {
+    /**
+     * Size of the internal buffer when no {@link com.fasterxml.jackson.core.util.BufferRecycler} is supplied.
+     */
+    static final int DEFAULT_BUFFER_SIZE = 8000;
+
+    /**
+     * Maximum length of a base 10 encoded long, including sign.
+     */
+    static final int MAX_LONG_LENGTH = 20;
+
+    private static final byte[] MIN_LONG_BYTES = String.valueOf(Long.MIN_VALUE).getBytes(Charset.forName("ISO-8859-1"));
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Charset charset;
+    private final boolean utf8;
+    private OutputStream outputStreamView;
+    private Writer writer;
+    protected byte[] buffer;
+    protected int pos;
+    protected int end;
+
+    protected BufferedOutputContext(Charset charset, byte[] buffer, int pos, int end) {
+        this.charset = charset;
+        this.utf8 = UTF_8.equals(charset);
+        this.buffer = buffer;
+        this.pos = pos;
+        this.end = end;
+    }
+
+    /**
+     * Hands buffered content over to the target, so that the buffer could be reused from its beginning.
+     */
+    @Override
+    public abstract void flushBuffer() throws IOException;
+
+    /**
+     * Makes room for at least {@code len} bytes if possible; draining contexts may free less, in which case the
+     * whole buffer is available afterwards.
+     */
+    protected void makeRoom(int len) throws IOException {
+        flushBuffer();
+    }
+
+    protected final void ensureRoom(int len) throws IOException {
+        if (end - pos < len) {
+            makeRoom(len);
+        }
+    }
+
+    /**
+     * Writes data not fitting into the remaining buffer space.
+     */
+    protected void writeLarge(byte[] data, int offset, int len) throws IOException {
+        while (len > 0) {
+            makeRoom(len);
+            int chunk = Math.min(len, end - pos);
+            System.arraycopy(data, offset, buffer, pos, chunk);
+            pos += chunk;
+            offset += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        writer = null;
+        return targetStream();
+    }
+
+    /**
+     * @return stream writing to the target, by default through this context
+     */
+    protected OutputStream targetStream() throws IOException {
+        if (outputStreamView == null) {
+            outputStreamView = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    BufferedOutputContext.this.write((byte) b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    BufferedOutputContext.this.write(b, off, len);
+                }
+            };
+        }
+        return outputStreamView;
+    }
+
+    @Override
+    public Writer getWriter() throws IOException {
+        if (writer != null) {
+            return writer;
+        }
+        return (writer = new BufferedWriter(new OutputStreamWriter(getOutputStream(), charset)));
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        write(text, 0, text.length());
+    }
+
+    @Override
+    public void write(CharSequence text, int offset, int len) throws IOException {
+        if (utf8) {
+            writeUtf8(text, offset, len);
+        } else {
+            write(text.subSequence(offset, offset + len).toString().getBytes(charset));
+        }
+    }
+
+    private void writeUtf8(CharSequence text, int offset, int len) throws IOException {
+        int i = offset;
+        final int limit = offset + len;
+        while (i < limit) {
+            // room for the longest sequence
+            ensureRoom(4);
+            final int asciiLimit = Math.min(limit, i + end - pos);
+            char c;
+            while (i < asciiLimit && (c = text.charAt(i)) < 0x80) {
+                buffer[pos++] = (byte) c;
+                i++;
+            }
+            if (i == limit || end - pos < 4) {
+                continue;
+            }
+            c = text.charAt(i++);
+            if (c < 0x80) {
+                buffer[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xc0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (!Character.isSurrogate(c)) {
+                buffer[pos++] = (byte) (0xe0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i < limit && Character.isLowSurrogate(text.charAt(i))) {
+                int cp = Character.toCodePoint(c, text.charAt(i++));
+                buffer[pos++] = (byte) (0xf0 | (cp >> 18));
+                buffer[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buffer[pos++] = (byte) (0x80 | (cp & 0x3f));
+            } else {
+                // unpaired surrogate, replaced like String.getBytes does
+                buffer[pos++] = '?';
+            }
+        }
+    }
+
+    @Override
+    public void write(byte b) throws IOException {
+        if (pos == end) {
+            makeRoom(1);
+        }
+        buffer[pos++] = b;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int len) throws IOException {
+        if (len <= end - pos) {
+            System.arraycopy(data, offset, buffer, pos, len);
+            pos += len;
+        } else {
+            writeLarge(data, offset, len);
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public long write(InputStream in, long len) throws IOException {
+        long copied = 0;
+        while (copied < len) {
+            if (pos == end) {
+                makeRoom(1);
+            }
+            int read = in.read(buffer, pos, (int) Math.min(len - copied, end - pos));
+            if (read < 0) {
+                break;
+            }
+            pos += read;
+            copied += read;
+        }
+        return copied;
+    }
+
+    @Override
+    public void write(char[] data, int offset, int len) throws IOException {
+        write(CharBuffer.wrap(data), offset, len);
+    }
+
+    @Override
+    public void write(char[] chars) throws IOException {
+        write(chars, 0, chars.length);
+    }
+
+    @Override
+    public void write(int i) throws IOException {
+        if (i == Integer.MIN_VALUE) {
+            write((long) i);
+            return;
+        }
+        ensureRoom(MAX_LONG_LENGTH);
+        if (i < 0) {
+            buffer[pos++] = '-';
+            i = -i;
+        }
+        pos += stringSize(i);
+        getBytes(i, pos, buffer);
+    }
+
+    static byte[] getByteBuf(long i) {
+        int size = (i < 0) ? stringSize(-i) + 1 : stringSize(i);
+        byte[] buf = new byte[size];
+        getBytes(i, size, buf);
+        return buf;
+    }
+
+    @Override
+    public void write(long i) throws IOException {
+        if (i == Long.MIN_VALUE) {
+            write(MIN_LONG_BYTES);
+            return;
+        }
+        ensureRoom(MAX_LONG_LENGTH);
+        if (i < 0) {
+            buffer[pos++] = '-';
+            i = -i;
+        }
+        pos += stringSize(i);
+        getBytes(i, pos, buffer);
+    }
+
+    static final Charset AS_IS = Charset.forName("ISO-8859-1");
+    static final BigInteger BIG_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+    /**
+     * @param i big int to be encoded
+     * @return integer in base 10 as a byte array;
+     */
+    static byte[] getByteBuf(BigInteger i) {
+        if (i.compareTo(BIG_LONG) <= 0) {
+            return getByteBuf(i.longValue());
+        }
+
+        return i.toString().getBytes(AS_IS);
+    }
+
+    @Override
+    public void write(BigInteger i) throws IOException {
+        if (i.bitLength() < Long.SIZE) {
+            write(i.longValue());
+        } else {
+            write(getByteBuf(i));
+        }
+    }
+
+    // Requires positive x
+    static int stringSize(int x) {
+        for (int i = 0; ; i++) {
+            if (x <= SIZE_TABLE[i]) {
+                return i + 1;
+            }
+        }
+    }
+
+    // Requires positive x
+    static int stringSize(long x) {
+        long p = 10;
+        for (int i = 1; i < 19; i++) {
+            if (x < p) {
+                return i;
+            }
+            p = 10 * p;
+        }
+        return 19;
+    }
+
+    final static int[] SIZE_TABLE = {
+            9, 99, 999, 9999, 99999, 999999, 9999999, 99999999, 999999999, Integer.MAX_VALUE};
+
+    final static byte[] DIGIT_ONES = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+    };
+
+    final static byte[] DIGIT_TENS = {
+            '0', '0', '0', '0', '0', '0', '0', '0', '0', '0',
+            '1', '1', '1', '1', '1', '1', '1', '1', '1', '1',
+            '2', '2', '2', '2', '2', '2', '2', '2', '2', '2',
+            '3', '3', '3', '3', '3', '3', '3', '3', '3', '3',
+            '4', '4', '4', '4', '4', '4', '4', '4', '4', '4',
+            '5', '5', '5', '5', '5', '5', '5', '5', '5', '5',
+            '6', '6', '6', '6', '6', '6', '6', '6', '6', '6',
+            '7', '7', '7', '7', '7', '7', '7', '7', '7', '7',
+            '8', '8', '8', '8', '8', '8', '8', '8', '8', '8',
+            '9', '9', '9', '9', '9', '9', '9', '9', '9', '9',
+    };
+
+    final static byte[] digits = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9'
+    };
+
+    static void getBytes(int i, int index, byte[] buf) {
+        int q, r;
+        int charPos = index;
+
+        if (i < 0) {
+            buf[0] = '-';
+            i = -i;
+        }
+
+        // Generate two digits per iteration
+        while (i >= 65536) {
+            q = i / 100;
+            // really: r = i - (q * 100);
+            r = i - ((q << 6) + (q << 5) + (q << 2));
+            i = q;
+            buf[--charPos] = DIGIT_ONES[r];
+            buf[--charPos] = DIGIT_TENS[r];
+        }
+
+        // Fall through to fast mode for smaller numbers
+        // assert(i <= 65536, i);
+        for (; ; ) {
+            q = (i * 52429) >>> (16 + 3);
+            r = i - ((q << 3) + (q << 1));  // r = i-(q*10) ...
+            buf[--charPos] = digits[r];
+            i = q;
+            if (i == 0) {
+                break;
+            }
+        }
+    }
+
+    static void getBytes(long i, int index, byte[] buf) {
+        long q;
+        int r;
+        int charPos = index;
+
+        if (i < 0) {
+            buf[0] = '-';
+            i = -i;
+        }
+
+        // Generate two digits per iteration
+        while (i > Integer.MAX_VALUE) {
+            q = i / 100;
+            // really: r = i - (q * 100);
+            r = (int) (i - ((q << 6) + (q << 5) + (q << 2)));
+            i = q;
+            buf[--charPos] = DIGIT_ONES[r];
+            buf[--charPos] = DIGIT_TENS[r];
+        }
+
+        getBytes((int) i, charPos, buf); // inline for performance improvement?
+    }
+
+    private static BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+    private static BigInteger HUNDRED = BigInteger.valueOf(100);
+
+    static void getBytes(BigInteger i, int index, byte[] buf) {
+        BigInteger[] div;
+        int r;
+        int charPos = index;
+
+        if (i.signum() < 0) {
+            buf[0] = '-';
+            i = i.negate();
+        }
+
+        while (i.compareTo(MAX_LONG) > 0) {
+            div = i.divideAndRemainder(HUNDRED);
+            i = div[0];
+            r = div[1].intValue();
+            buf[--charPos] = DIGIT_ONES[r];
+            buf[--charPos] = DIGIT_TENS[r];
+        }
+
+        getBytes(i.longValue(), charPos, buf);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void release() throws IOException {
+        flushBuffer();
+    }
+}
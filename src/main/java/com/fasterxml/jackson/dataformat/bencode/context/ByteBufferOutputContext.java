@@ -0,0 +1,96 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes into a caller supplied {@link ByteBuffer}, starting at its position. Heap buffers are written in place,
+ * direct buffers through a small staging array. Whenever the buffer runs out of space it is replaced by a larger one
+ * of the same kind holding the content written so far, so the actual buffer has to be obtained through
+ * {@link #getByteBuffer()} after writing.
+ */
+public class ByteBufferOutputContext extends BufferedOutputContext {
+    private ByteBuffer target;
+    private final boolean inPlace;
+
+    public ByteBufferOutputContext(ByteBuffer target, Charset charset) {
+        this(target, charset, target.hasArray());
+    }
+
+    private ByteBufferOutputContext(ByteBuffer target, Charset charset, boolean inPlace) {
+        super(charset,
+                inPlace ? target.array() : new byte[DEFAULT_BUFFER_SIZE],
+                inPlace ? target.arrayOffset() + target.position() : 0,
+                inPlace ? target.arrayOffset() + target.limit() : DEFAULT_BUFFER_SIZE);
+        this.target = target;
+        this.inPlace = inPlace;
+    }
+
+    /**
+     * @return buffer holding the output, positioned after the last byte written; might not be the one originally
+     * supplied
+     */
+    public ByteBuffer getByteBuffer() throws IOException {
+        flushBuffer();
+        return target;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (inPlace) {
+            target.position(pos - target.arrayOffset());
+        } else if (pos > 0) {
+            if (target.remaining() < pos) {
+                grow(pos);
+            }
+            target.put(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+
+    @Override
+    protected void makeRoom(int len) throws IOException {
+        flushBuffer();
+        if (inPlace && target.remaining() < len) {
+            grow(len);
+            buffer = target.array();
+            pos = target.arrayOffset() + target.position();
+            end = target.arrayOffset() + target.limit();
+        }
+    }
+
+    @Override
+    protected void writeLarge(byte[] data, int offset, int len) throws IOException {
+        if (inPlace) {
+            super.writeLarge(data, offset, len);
+        } else {
+            flushBuffer();
+            if (target.remaining() < len) {
+                grow(len);
+            }
+            target.put(data, offset, len);
+        }
+    }
+
+    private void grow(int needed) {
+        long capacity = Math.max(2L * target.capacity(), (long) target.position() + needed);
+        if (capacity > Integer.MAX_VALUE) {
+            if ((long) target.position() + needed > Integer.MAX_VALUE) {
+                throw new IllegalStateException("output does not fit into a ByteBuffer");
+            }
+            capacity = Integer.MAX_VALUE;
+        }
+        ByteBuffer grown = target.isDirect() ?
+                ByteBuffer.allocateDirect((int) capacity) : ByteBuffer.allocate((int) capacity);
+        grown.order(target.order());
+        target.flip();
+        grown.put(target);
+        target = grown;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+    }
+}
@@ -0,0 +1,92 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import com.fasterxml.jackson.core.util.BufferRecycler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes to a {@link WritableByteChannel}, e.g. a {@link java.nio.channels.FileChannel} or a socket channel in
+ * blocking mode. Channels in non-blocking mode are rejected, writing to them would spin until the peer catches up.
+ */
+public class ChannelOutputContext extends BufferedOutputContext {
+    private final WritableByteChannel channel;
+    private final BufferRecycler bufferRecycler;
+    private final ByteBuffer wrappedBuffer;
+
+    /**
+     * @throws IllegalArgumentException if {@code channel} is a {@link SelectableChannel} in non-blocking mode
+     */
+    public ChannelOutputContext(WritableByteChannel channel, Charset charset) {
+        this(channel, charset, null);
+    }
+
+    /**
+     * @param bufferRecycler if present output buffer is taken from, and returned to it on {@link #close()}
+     * @throws IllegalArgumentException if {@code channel} is a {@link SelectableChannel} in non-blocking mode
+     */
+    public ChannelOutputContext(WritableByteChannel channel, Charset charset, BufferRecycler bufferRecycler) {
+        this(blocking(channel), charset, bufferRecycler, bufferRecycler == null ? new byte[DEFAULT_BUFFER_SIZE] :
+                bufferRecycler.allocByteBuffer(BufferRecycler.BYTE_WRITE_ENCODING_BUFFER));
+    }
+
+    private ChannelOutputContext(WritableByteChannel channel, Charset charset, BufferRecycler bufferRecycler,
+                                 byte[] buffer) {
+        super(charset, buffer, 0, buffer.length);
+        this.channel = channel;
+        this.bufferRecycler = bufferRecycler;
+        wrappedBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    private static WritableByteChannel blocking(WritableByteChannel channel) {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("channel is in non-blocking mode");
+        }
+        return channel;
+    }
+
+    private void writeFully(ByteBuffer bb) throws IOException {
+        while (bb.hasRemaining()) {
+            channel.write(bb);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (pos > 0) {
+            wrappedBuffer.clear();
+            wrappedBuffer.limit(pos);
+            writeFully(wrappedBuffer);
+            pos = 0;
+        }
+    }
+
+    @Override
+    protected void writeLarge(byte[] data, int offset, int len) throws IOException {
+        flushBuffer();
+        if (len < buffer.length) {
+            System.arraycopy(data, offset, buffer, 0, len);
+            pos = len;
+        } else {
+            writeFully(ByteBuffer.wrap(data, offset, len));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+        channel.close();
+    }
+
+    @Override
+    public void release() throws IOException {
+        flushBuffer();
+        if (bufferRecycler != null && buffer != null) {
+            bufferRecycler.releaseByteBuffer(BufferRecycler.BYTE_WRITE_ENCODING_BUFFER, buffer);
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Hands output to a {@link Subscriber} in chunks of bounded size, honouring the subscriber's demand: when no chunk is
+ * requested, writing blocks until one is, so a slow consumer never makes the whole document pile up in memory. The
+ * generator therefore has to run on a thread of its own (e.g. a worker of a blocking executor) while the subscriber
+ * is driven by the reactive pipeline.
+ * <p>
+ * {@link Subscriber} and {@link Subscription} mirror {@code java.util.concurrent.Flow} and Reactive Streams, so
+ * adapting to either one is a matter of delegation. Chunks are never reused by this context, the subscriber owns them.
+ */
+public class ChunkedOutputContext extends BufferedOutputContext {
+    /**
+     * Receiver of output chunks; see {@code java.util.concurrent.Flow.Subscriber}.
+     */
+    public interface Subscriber {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(ByteBuffer chunk);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * See {@code java.util.concurrent.Flow.Subscription}.
+     */
+    public interface Subscription {
+        void request(long n);
+
+        void cancel();
+    }
+
+    private final Subscriber subscriber;
+    private final int chunkSize;
+    private final Object lock = new Object();
+    private long demand;
+    private boolean cancelled;
+    /**
+     * Set when the subscriber requested a non-positive number of chunks.
+     */
+    private IllegalArgumentException illegalDemand;
+    /**
+     * Set once a terminal signal is due or the subscription cancelled; all state above is guarded by {@code lock}.
+     */
+    private boolean done;
+
+    /**
+     * @param chunkSize maximum size of emitted chunks, at least {@value #MAX_LONG_LENGTH} bytes
+     */
+    public ChunkedOutputContext(Subscriber subscriber, int chunkSize, Charset charset) {
+        super(charset, new byte[checkChunkSize(chunkSize)], 0, chunkSize);
+        this.subscriber = subscriber;
+        this.chunkSize = chunkSize;
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                synchronized (lock) {
+                    if (n <= 0) {
+                        // signalled by the writing thread, so that onError does not race with onNext
+                        if (illegalDemand == null) {
+                            illegalDemand = new IllegalArgumentException(
+                                    "non-positive number of chunks requested: " + n);
+                        }
+                    } else {
+                        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                    }
+                    lock.notifyAll();
+                }
+            }
+
+            @Override
+            public void cancel() {
+                synchronized (lock) {
+                    cancelled = true;
+                    lock.notifyAll();
+                }
+            }
+        });
+    }
+
+    private static int checkChunkSize(int chunkSize) {
+        if (chunkSize < MAX_LONG_LENGTH) {
+            throw new IllegalArgumentException("chunk size must be at least " + MAX_LONG_LENGTH + " bytes");
+        }
+        return chunkSize;
+    }
+
+    /**
+     * @return false if the output is done or the subscription cancelled, so nothing is to be emitted any more
+     */
+    private boolean awaitDemand() throws IOException {
+        IllegalArgumentException error;
+        synchronized (lock) {
+            while (demand == 0 && !cancelled && !done && illegalDemand == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for demand");
+                }
+            }
+            if (cancelled || done) {
+                return false;
+            }
+            error = illegalDemand;
+            if (error == null) {
+                if (demand != Long.MAX_VALUE) {
+                    demand--;
+                }
+                return true;
+            }
+        }
+        // Reactive Streams rule 3.9
+        fail(error);
+        throw new IOException(error.getMessage(), error);
+    }
+
+    /**
+     * Marks the output as done.
+     *
+     * @return whether a terminal signal is due, false if the output was done already or the subscription cancelled
+     */
+    private boolean finish() {
+        synchronized (lock) {
+            final boolean signal = !done && !cancelled;
+            done = true;
+            return signal;
+        }
+    }
+
+    /**
+     * Emits buffered content as a chunk once one is requested; after cancellation the content is dropped, as nothing
+     * may be signalled any more.
+     */
+    @Override
+    public void flushBuffer() throws IOException {
+        if (pos == 0) {
+            return;
+        }
+        if (!awaitDemand()) {
+            pos = 0;
+            return;
+        }
+        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, pos);
+        buffer = new byte[chunkSize];
+        pos = 0;
+        subscriber.onNext(chunk);
+    }
+
+    /**
+     * Stops the writer once the subscription is cancelled, rather than serializing the rest of the document for
+     * nothing.
+     */
+    @Override
+    protected void makeRoom(int len) throws IOException {
+        flushBuffer();
+        synchronized (lock) {
+            if (cancelled) {
+                throw new IOException("subscription cancelled");
+            }
+        }
+    }
+
+    @Override
+    protected void writeLarge(byte[] data, int offset, int len) throws IOException {
+        // fill chunks up completely rather than emitting the partial one first
+        while (len > 0) {
+            if (pos == end) {
+                makeRoom(len);
+            }
+            int chunk = Math.min(len, end - pos);
+            System.arraycopy(data, offset, buffer, pos, chunk);
+            pos += chunk;
+            offset += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Signals {@code error} to the subscriber instead of completing, e.g. when serialization failed midway.
+     */
+    public void fail(Throwable error) {
+        pos = 0;
+        if (finish()) {
+            subscriber.onError(error);
+        }
+    }
+
+    /**
+     * Same as {@link #close()}: the subscription exists for this context only, and is completed along with the
+     * output.
+     */
+    @Override
+    public void release() throws IOException {
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+        if (finish()) {
+            subscriber.onComplete();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Discards output, only counting the number of bytes written.
+ */
+public class CountingOutputContext extends BufferedOutputContext {
+    private static final int SCRATCH_SIZE = 256;
+
+    private long count;
+
+    public CountingOutputContext(Charset charset) {
+        super(charset, new byte[SCRATCH_SIZE], 0, SCRATCH_SIZE);
+    }
+
+    /**
+     * @return number of bytes written so far
+     */
+    public long getCount() {
+        return count + pos;
+    }
+
+    @Override
+    public void flushBuffer() {
+        count += pos;
+        pos = 0;
+    }
+
+    @Override
+    protected void writeLarge(byte[] data, int offset, int len) {
+        count += len;
+    }
+
+    @Override
+    public long write(InputStream in, long len) throws IOException {
+        long skipped = 0, current;
+        while (skipped < len && (current = in.skip(len - skipped)) > 0) {
+            skipped += current;
+        }
+        while (skipped < len && in.read() >= 0) {
+            skipped++;
+        }
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+        flushBuffer();
+    }
+}
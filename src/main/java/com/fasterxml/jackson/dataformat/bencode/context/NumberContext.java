@@ -198,10 +198,20 @@ public class NumberContext {
         //noinspection ResultOfMethodCallIgnored
         sic.skip(currentPtr);
         resetCurrentGuess();
-        return value;
+        return currentNegative ? value.negate() : value;
     }
 
-    public Number parseNumber() {
-        throw new UnsupportedOperationException("not implemented yet");
+    public Number parseNumber() throws IOException {
+        if (numberLength < 0) {
+            guessType();
+        }
+        switch (currentType) {
+            case INT:
+                return parseInt();
+            case LONG:
+                return parseLong();
+            default:
+                return parseBigInteger();
+        }
     }
 }
@@ -1,6 +1,7 @@
 package com.fasterxml.jackson.dataformat.bencode.context;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.math.BigInteger;
@@ -15,6 +16,11 @@ public interface OutputContext {
 
     void write(String text) throws IOException;
 
+    /**
+     * Writes {@code len} characters starting at {@code offset}, encoded in {@link #getCharset()}.
+     */
+    void write(CharSequence text, int offset, int len) throws IOException;
+
     void write(byte b) throws IOException;
 
     void write(int i) throws IOException;
@@ -31,7 +37,25 @@ public interface OutputContext {
 
     void write(BigInteger i) throws IOException;
 
+    /**
+     * Copies up to {@code len} bytes from {@code in}.
+     *
+     * @return number of bytes copied, less than {@code len} only if {@code in} was exhausted
+     */
+    long write(InputStream in, long len) throws IOException;
+
     void close() throws IOException;
 
+    /**
+     * Writes buffered content to the target and releases resources such as recycled buffers, leaving the target open;
+     * the counterpart of {@link #close()} for targets the caller keeps using.
+     */
+    void release() throws IOException;
+
     void flush() throws IOException;
+
+    /**
+     * Hands buffered content over to the target, without flushing the target itself.
+     */
+    void flushBuffer() throws IOException;
 }
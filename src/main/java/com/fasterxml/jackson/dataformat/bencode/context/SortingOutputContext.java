@@ -0,0 +1,208 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import com.fasterxml.jackson.core.util.BufferRecycler;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Staging area for dictionaries written with keys in arbitrary order. Dictionaries, including nested ones, are
+ * collected in a single growable arena; every entry is recorded as a byte segment (key and value). When a dictionary
+ * is closed its segments are reordered in place by raw key bytes, unless the keys already arrived in ascending
+ * order, which is detected while writing. Once the outermost dictionary is closed the arena is transferred to the
+ * real output in one block.
+ */
+public class SortingOutputContext extends BufferedOutputContext {
+    private static final int INITIAL_BUFFER_SIZE = 2000;
+
+    // per entry: segment start, key start, key length
+    private static final int ENTRY_SIZE = 3;
+
+    // per dictionary: index of first entry, ordered flag
+    private static final int FRAME_SIZE = 2;
+
+    private final BufferRecycler bufferRecycler;
+    private int[] entries = new int[ENTRY_SIZE * 16];
+    private int entriesEnd;
+    private int[] frames = new int[FRAME_SIZE * 8];
+    private int framesEnd;
+    private int[] sortIndex = new int[16];
+    private int[] sortScratch = new int[16];
+    private byte[] copyScratch;
+
+    public SortingOutputContext(Charset charset, BufferRecycler bufferRecycler) {
+        this(charset, bufferRecycler, bufferRecycler == null ? new byte[INITIAL_BUFFER_SIZE] :
+                bufferRecycler.allocByteBuffer(BufferRecycler.BYTE_WRITE_CONCAT_BUFFER));
+    }
+
+    private SortingOutputContext(Charset charset, BufferRecycler bufferRecycler, byte[] buffer) {
+        super(charset, buffer, 0, buffer.length);
+        this.bufferRecycler = bufferRecycler;
+    }
+
+    /**
+     * @return true if there is an open dictionary
+     */
+    public boolean isActive() {
+        return framesEnd > 0;
+    }
+
+    public void startDictionary() throws IOException {
+        write((byte) 'd');
+        if (framesEnd == frames.length) {
+            frames = Arrays.copyOf(frames, frames.length * 2);
+        }
+        frames[framesEnd++] = entriesEnd;
+        frames[framesEnd++] = 1;
+    }
+
+    /**
+     * Marks the beginning of an entry, must be followed by the encoded key and a call to {@link #endKey()}.
+     */
+    public void startEntry() {
+        if (entriesEnd == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[entriesEnd] = pos;
+        entriesEnd += ENTRY_SIZE;
+    }
+
+    public void endKey() throws IOException {
+        final int entry = entriesEnd - ENTRY_SIZE;
+        int keyStart = entries[entry];
+        while (buffer[keyStart++] != ':') {
+            // skip length prefix
+        }
+        entries[entry + 1] = keyStart;
+        entries[entry + 2] = pos - keyStart;
+
+        if (entry > frames[framesEnd - 2] && frames[framesEnd - 1] != 0) {
+            int cmp = compareKeys(entry - ENTRY_SIZE, entry);
+            if (cmp == 0) {
+                throw new IOException("duplicate dictionary key");
+            }
+            if (cmp > 0) {
+                frames[framesEnd - 1] = 0;
+            }
+        }
+    }
+
+    public void endDictionary() throws IOException {
+        framesEnd -= FRAME_SIZE;
+        final int first = frames[framesEnd];
+        if (frames[framesEnd + 1] == 0) {
+            sortEntries(first, (entriesEnd - first) / ENTRY_SIZE);
+        }
+        entriesEnd = first;
+        write((byte) 'e');
+    }
+
+    /**
+     * Moves the content of the arena to {@code target}.
+     */
+    public void transferTo(OutputContext target) throws IOException {
+        target.write(buffer, 0, pos);
+        pos = 0;
+    }
+
+    private int compareKeys(int a, int b) {
+        int aOff = entries[a + 1], aLen = entries[a + 2];
+        int bOff = entries[b + 1], bLen = entries[b + 2];
+        int len = Math.min(aLen, bLen);
+        for (int i = 0; i < len; i++) {
+            int diff = (buffer[aOff + i] & 0xff) - (buffer[bOff + i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return aLen - bLen;
+    }
+
+    private void sortEntries(int first, int count) throws IOException {
+        if (sortIndex.length < count) {
+            sortIndex = new int[count];
+            sortScratch = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            sortIndex[i] = first + i * ENTRY_SIZE;
+        }
+        mergeSort(0, count);
+        for (int i = 1; i < count; i++) {
+            if (compareKeys(sortIndex[i - 1], sortIndex[i]) == 0) {
+                throw new IOException("duplicate dictionary key");
+            }
+        }
+
+        final int start = entries[first];
+        final int len = pos - start;
+        if (copyScratch == null || copyScratch.length < len) {
+            copyScratch = new byte[Math.max(len, INITIAL_BUFFER_SIZE)];
+        }
+        int copied = 0;
+        for (int i = 0; i < count; i++) {
+            int entry = sortIndex[i];
+            int segmentStart = entries[entry];
+            int segmentEnd = entry + ENTRY_SIZE < first + count * ENTRY_SIZE ? entries[entry + ENTRY_SIZE] : pos;
+            System.arraycopy(buffer, segmentStart, copyScratch, copied, segmentEnd - segmentStart);
+            copied += segmentEnd - segmentStart;
+        }
+        System.arraycopy(copyScratch, 0, buffer, start, len);
+    }
+
+    private void mergeSort(int from, int to) {
+        if (to - from < 8) {
+            for (int i = from + 1; i < to; i++) {
+                int e = sortIndex[i];
+                int j = i - 1;
+                while (j >= from && compareKeys(sortIndex[j], e) > 0) {
+                    sortIndex[j + 1] = sortIndex[j];
+                    j--;
+                }
+                sortIndex[j + 1] = e;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(from, mid);
+        mergeSort(mid, to);
+        if (compareKeys(sortIndex[mid - 1], sortIndex[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(sortIndex, from, sortScratch, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            sortIndex[k++] = compareKeys(sortScratch[j], sortScratch[i]) < 0 ? sortScratch[j++] : sortScratch[i++];
+        }
+        while (i < mid) {
+            sortIndex[k++] = sortScratch[i++];
+        }
+        while (j < to) {
+            sortIndex[k++] = sortScratch[j++];
+        }
+    }
+
+    @Override
+    public void flushBuffer() {
+        // content is retained until transferred
+    }
+
+    @Override
+    protected void makeRoom(int len) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, pos + len));
+        end = buffer.length;
+    }
+
+    @Override
+    public void release() {
+        close();
+    }
+
+    @Override
+    public void close() {
+        if (bufferRecycler != null && buffer != null) {
+            bufferRecycler.releaseByteBuffer(BufferRecycler.BYTE_WRITE_CONCAT_BUFFER, buffer);
+        }
+        buffer = null;
+    }
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.dataformat.bencode.location.MutableLocation;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 public class StreamInputContext extends InputStream {
     private final InputStream in;
@@ -16,7 +17,7 @@ public class StreamInputContext extends InputStream {
 
     public StreamInputContext(InputStream in) {
         this.rawIn = in;
-        this.in = in.markSupported() ? in : new BufferedInputStream(in);
+        this.in = in.markSupported() ? in : new ReleasableInputStream(in);
         location = new MutableLocation();
         markedLocation = new MutableLocation();
     }
@@ -79,6 +80,16 @@ public class StreamInputContext extends InputStream {
         return true;
     }
 
+    /**
+     * Writes bytes read ahead from the underlying stream but not consumed yet to {@code out}, and drops them. Streams
+     * supporting marks are not read ahead.
+     *
+     * @return number of bytes written
+     */
+    public int releaseBuffered(OutputStream out) throws IOException {
+        return in instanceof ReleasableInputStream ? ((ReleasableInputStream) in).release(out) : 0;
+    }
+
     public JsonLocation getJsonLocation() {
         return location.getJsonLocation(rawIn);
     }
@@ -86,4 +97,20 @@ public class StreamInputContext extends InputStream {
     public Location getLocation() {
         return location;
     }
+
+    private static final class ReleasableInputStream extends BufferedInputStream {
+        ReleasableInputStream(InputStream in) {
+            super(in);
+        }
+
+        synchronized int release(OutputStream out) throws IOException {
+            final int len = count - pos;
+            if (len > 0) {
+                out.write(buf, pos, len);
+                pos = count;
+            }
+            markpos = -1;
+            return len;
+        }
+    }
 }
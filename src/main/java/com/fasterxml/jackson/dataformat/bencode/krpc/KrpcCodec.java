@@ -0,0 +1,534 @@
+package com.fasterxml.jackson.dataformat.bencode.krpc;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.dataformat.bencode.bittorrent.CompactPeers;
+import com.fasterxml.jackson.dataformat.bencode.util.ValueScanner;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static com.fasterxml.jackson.dataformat.bencode.krpc.KrpcMessage.ID_LENGTH;
+import static com.fasterxml.jackson.dataformat.bencode.krpc.KrpcMessage.NODE_ENTRY_LENGTH;
+
+/**
+ * Decodes KRPC datagrams into {@link KrpcMessage}s and encodes them into caller provided buffers. Messages are small
+ * and fit a datagram, so rather than going through {@link com.fasterxml.jackson.dataformat.bencode.BEncodeParser} and
+ * {@link com.fasterxml.jackson.dataformat.bencode.BEncodeGenerator}, which allocate per string and per document,
+ * bencode is scanned and written in place; neither direction allocates once buffers have grown to the largest message
+ * seen.
+ * <p>
+ * Keys which are not part of BEP 5 are skipped when decoding, which allocates only for nested values; key order is
+ * not checked. Query methods other than those of BEP 5 and data after the message are rejected. Codecs keep scratch
+ * state and are not thread safe, use one per thread.
+ */
+public class KrpcCodec {
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    private static final byte[] ID = key("id");
+    private static final byte[] IMPLIED_PORT = key("implied_port");
+    private static final byte[] INFO_HASH = key("info_hash");
+    private static final byte[] NODES = key("nodes");
+    private static final byte[] PORT = key("port");
+    private static final byte[] TARGET = key("target");
+    private static final byte[] TOKEN = key("token");
+    private static final byte[] VALUES = key("values");
+    private static final KrpcMessage.Method[] METHODS = KrpcMessage.Method.values();
+
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private int start;
+    /**
+     * Start of the payload of the last string read.
+     */
+    private int stringStart;
+    private byte[] scratch;
+
+    /**
+     * @return key with its length prefix
+     */
+    private static byte[] key(String name) {
+        return (name.length() + ":" + name).getBytes(LATIN_1);
+    }
+
+    public KrpcMessage decode(DatagramPacket packet, KrpcMessage message) throws JsonParseException {
+        return decode(packet.getData(), packet.getOffset(), packet.getLength(), message);
+    }
+
+    /**
+     * Decodes the remaining content of {@code buffer}, leaving its position unchanged. Direct buffers are copied to a
+     * scratch array first.
+     */
+    public KrpcMessage decode(ByteBuffer buffer, KrpcMessage message) throws JsonParseException {
+        final int len = buffer.remaining();
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + buffer.position(), len, message);
+        }
+        byte[] copy = scratch(len);
+        buffer.duplicate().get(copy, 0, len);
+        return decode(copy, 0, len, message);
+    }
+
+    /**
+     * Clears {@code message} and fills it with the message in {@code data[offset, offset + len)}.
+     *
+     * @return {@code message}
+     * @throws JsonParseException if the data is not a well-formed KRPC message
+     */
+    public KrpcMessage decode(byte[] data, int offset, int len, KrpcMessage message) throws JsonParseException {
+        message.clear();
+        buf = data;
+        start = pos = offset;
+        limit = offset + len;
+        try {
+            expect('d');
+            while (peek() != 'e') {
+                final int keyLength = string();
+                if (keyLength != 1) {
+                    skipValue();
+                    continue;
+                }
+                switch (buf[stringStart]) {
+                    case 't': {
+                        final int idLength = string();
+                        message.setTransactionId(buf, stringStart, idLength);
+                        break;
+                    }
+                    case 'y':
+                        message.setType(type());
+                        break;
+                    case 'q':
+                        message.setMethod(method(string()));
+                        break;
+                    case 'v': {
+                        final int versionLength = string();
+                        message.setVersion(buf, stringStart, versionLength);
+                        break;
+                    }
+                    case 'a':
+                    case 'r':
+                        arguments(message);
+                        break;
+                    case 'e':
+                        error(message);
+                        break;
+                    default:
+                        skipValue();
+                }
+            }
+            if (++pos != limit) {
+                throw error("trailing data after message");
+            }
+            if (message.getType() == null) {
+                throw error("message type missing");
+            }
+            return message;
+        } finally {
+            buf = null;
+        }
+    }
+
+    private KrpcMessage.Type type() throws JsonParseException {
+        if (string() == 1) {
+            switch (buf[stringStart]) {
+                case 'q':
+                    return KrpcMessage.Type.QUERY;
+                case 'r':
+                    return KrpcMessage.Type.RESPONSE;
+                case 'e':
+                    return KrpcMessage.Type.ERROR;
+            }
+        }
+        throw error("unknown message type");
+    }
+
+    private KrpcMessage.Method method(int len) throws JsonParseException {
+        for (KrpcMessage.Method method : METHODS) {
+            if (equals(method.name, 0, buf, stringStart, len)) {
+                return method;
+            }
+        }
+        throw error("unknown query method");
+    }
+
+    private void arguments(KrpcMessage message) throws JsonParseException {
+        expect('d');
+        while (peek() != 'e') {
+            final int keyStart = pos;
+            string();
+            final int keyEnd = pos;
+            if (is(ID, keyStart, keyEnd)) {
+                message.setId(buf, id());
+            } else if (is(TARGET, keyStart, keyEnd)) {
+                message.setTarget(buf, id());
+            } else if (is(INFO_HASH, keyStart, keyEnd)) {
+                message.setInfoHash(buf, id());
+            } else if (is(TOKEN, keyStart, keyEnd)) {
+                final int len = string();
+                message.setToken(buf, stringStart, len);
+            } else if (is(PORT, keyStart, keyEnd)) {
+                message.setPort(port());
+            } else if (is(IMPLIED_PORT, keyStart, keyEnd)) {
+                message.setImpliedPort(integer() == 0 ? 0 : 1);
+            } else if (is(NODES, keyStart, keyEnd)) {
+                final int len = string();
+                if (len % NODE_ENTRY_LENGTH != 0) {
+                    throw error("compact node info length " + len + " is not a multiple of " + NODE_ENTRY_LENGTH);
+                }
+                message.setNodes(buf, stringStart, len);
+            } else if (is(VALUES, keyStart, keyEnd)) {
+                values(message);
+            } else {
+                skipValue();
+            }
+        }
+        pos++;
+    }
+
+    private void values(KrpcMessage message) throws JsonParseException {
+        expect('l');
+        message.setHasValues(true);
+        CompactPeers values = message.getValues();
+        while (peek() != 'e') {
+            final int len = string();
+            // IPv6 peers (BEP 32) and malformed entries are left out
+            if (len == CompactPeers.IPV4_ENTRY_LENGTH) {
+                values.read(buf, stringStart, len);
+            }
+        }
+        pos++;
+    }
+
+    private void error(KrpcMessage message) throws JsonParseException {
+        expect('l');
+        final long code = integer();
+        if (code < Integer.MIN_VALUE || code > Integer.MAX_VALUE) {
+            throw error("error code " + code + " out of range");
+        }
+        final int len = string();
+        message.setError((int) code, buf, stringStart, len);
+        while (peek() != 'e') {
+            skipValue();
+        }
+        pos++;
+    }
+
+    /**
+     * @return offset of a node id, info hash or target
+     */
+    private int id() throws JsonParseException {
+        if (string() != ID_LENGTH) {
+            throw error("ids are " + ID_LENGTH + " bytes long");
+        }
+        return stringStart;
+    }
+
+    private int port() throws JsonParseException {
+        final long port = integer();
+        if (port < 0 || port > 0xffff) {
+            throw error("illegal port " + port);
+        }
+        return (int) port;
+    }
+
+    private boolean is(byte[] key, int keyStart, int keyEnd) {
+        return equals(key, 0, buf, keyStart, keyEnd - keyStart);
+    }
+
+    /**
+     * @return whether all of {@code a} from {@code aOffset} on equals {@code b[bOffset, bOffset + len)}
+     */
+    private static boolean equals(byte[] a, int aOffset, byte[] b, int bOffset, int len) {
+        if (a.length - aOffset != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int peek() throws JsonParseException {
+        if (pos >= limit) {
+            throw error("unexpected end of message");
+        }
+        return buf[pos];
+    }
+
+    private void expect(char c) throws JsonParseException {
+        if (peek() != c) {
+            throw error("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * Reads a byte string, leaving its payload at {@link #stringStart}.
+     *
+     * @return length of the payload
+     */
+    private int string() throws JsonParseException {
+        int len = 0;
+        int c;
+        int digits = 0;
+        while ((c = peek()) != ':') {
+            if (c < '0' || c > '9' || ++digits > 5) {
+                throw error("malformed byte string length");
+            }
+            len = len * 10 + c - '0';
+            pos++;
+        }
+        if (digits == 0) {
+            throw error("malformed byte string length");
+        }
+        stringStart = ++pos;
+        if (len > limit - pos) {
+            throw error("unexpected end of message");
+        }
+        pos += len;
+        return len;
+    }
+
+    private long integer() throws JsonParseException {
+        expect('i');
+        final boolean negative = peek() == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        int c;
+        while ((c = peek()) != 'e') {
+            if (c < '0' || c > '9' || ++digits > 18) {
+                throw error("malformed integer");
+            }
+            value = value * 10 + c - '0';
+            pos++;
+        }
+        if (digits == 0) {
+            throw error("malformed integer");
+        }
+        pos++;
+        return negative ? -value : value;
+    }
+
+    private void skipValue() throws JsonParseException {
+        try {
+            pos = ValueScanner.valueEnd(buf, pos, limit);
+        } catch (IOException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    private JsonParseException error(String message) {
+        return new JsonParseException(message, new JsonLocation(null, pos - start, -1, -1));
+    }
+
+    /**
+     * Encodes {@code message} into {@code packet}'s buffer from its offset on and sets the packet's length.
+     *
+     * @throws BufferOverflowException if the message does not fit
+     */
+    public int encode(KrpcMessage message, DatagramPacket packet) {
+        final byte[] data = packet.getData();
+        final int len = encode(message, data, packet.getOffset(), data.length - packet.getOffset());
+        packet.setLength(len);
+        return len;
+    }
+
+    /**
+     * Encodes {@code message} at the position of {@code buffer} and advances it. Direct buffers are written through
+     * a scratch array.
+     *
+     * @throws BufferOverflowException if the message does not fit
+     */
+    public int encode(KrpcMessage message, ByteBuffer buffer) {
+        final int len;
+        if (buffer.hasArray()) {
+            len = encode(message, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] out = scratch(buffer.remaining());
+            len = encode(message, out, 0, buffer.remaining());
+            buffer.duplicate().put(out, 0, len);
+        }
+        buffer.position(buffer.position() + len);
+        return len;
+    }
+
+    /**
+     * Encodes {@code message} into {@code dest[offset, offset + capacity)}, keys sorted.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if the message does not fit
+     * @throws IllegalStateException if the type, or the method of a query, is not set
+     */
+    public int encode(KrpcMessage message, byte[] dest, int offset, int capacity) {
+        final KrpcMessage.Type type = message.getType();
+        if (type == null || type == KrpcMessage.Type.QUERY && message.getMethod() == null) {
+            throw new IllegalStateException("message type and query method must be set");
+        }
+        buf = dest;
+        start = pos = offset;
+        limit = offset + capacity;
+        try {
+            put('d');
+            switch (type) {
+                case QUERY:
+                    putKey('a');
+                    putArguments(message);
+                    putKey('q');
+                    putString(message.getMethod().name, 0, message.getMethod().name.length);
+                    break;
+                case RESPONSE:
+                    putKey('r');
+                    putArguments(message);
+                    break;
+                default:
+                    putKey('e');
+                    put('l');
+                    putInteger(message.getErrorCode());
+                    putString(message.getErrorMessage(), 0, message.getErrorMessageLength());
+                    put('e');
+            }
+            putKey('t');
+            putString(message.getTransactionId(), 0, message.getTransactionIdLength());
+            if (message.getVersion() != null) {
+                putKey('v');
+                putString(message.getVersion(), 0, message.getVersionLength());
+            }
+            putKey('y');
+            putString(type.code);
+            put('e');
+            return pos - start;
+        } finally {
+            buf = null;
+        }
+    }
+
+    private void putArguments(KrpcMessage message) {
+        put('d');
+        if (message.getId() != null) {
+            putBytes(ID);
+            putString(message.getId(), 0, ID_LENGTH);
+        }
+        if (message.getImpliedPort() >= 0) {
+            putBytes(IMPLIED_PORT);
+            putInteger(message.getImpliedPort());
+        }
+        if (message.getInfoHash() != null) {
+            putBytes(INFO_HASH);
+            putString(message.getInfoHash(), 0, ID_LENGTH);
+        }
+        if (message.getNodes() != null) {
+            putBytes(NODES);
+            putString(message.getNodes(), 0, message.getNodeCount() * NODE_ENTRY_LENGTH);
+        }
+        if (message.getPort() >= 0) {
+            putBytes(PORT);
+            putInteger(message.getPort());
+        }
+        if (message.getTarget() != null) {
+            putBytes(TARGET);
+            putString(message.getTarget(), 0, ID_LENGTH);
+        }
+        if (message.getToken() != null) {
+            putBytes(TOKEN);
+            putString(message.getToken(), 0, message.getTokenLength());
+        }
+        CompactPeers values = message.getValues();
+        if (values != null) {
+            putBytes(VALUES);
+            put('l');
+            for (int i = 0; i < values.size(); i++) {
+                final int address = values.getAddress(i);
+                final int port = values.getPort(i);
+                ensure(2 + CompactPeers.IPV4_ENTRY_LENGTH);
+                buf[pos++] = '0' + CompactPeers.IPV4_ENTRY_LENGTH;
+                buf[pos++] = ':';
+                buf[pos++] = (byte) (address >> 24);
+                buf[pos++] = (byte) (address >> 16);
+                buf[pos++] = (byte) (address >> 8);
+                buf[pos++] = (byte) address;
+                buf[pos++] = (byte) (port >> 8);
+                buf[pos++] = (byte) port;
+            }
+            put('e');
+        }
+        put('e');
+    }
+
+    private void ensure(int n) {
+        if (n > limit - pos) {
+            throw new BufferOverflowException();
+        }
+    }
+
+    private void put(char c) {
+        ensure(1);
+        buf[pos++] = (byte) c;
+    }
+
+    private void putKey(char c) {
+        ensure(3);
+        buf[pos++] = '1';
+        buf[pos++] = ':';
+        buf[pos++] = (byte) c;
+    }
+
+    private void putBytes(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void putString(byte b) {
+        ensure(3);
+        buf[pos++] = '1';
+        buf[pos++] = ':';
+        buf[pos++] = b;
+    }
+
+    private void putString(byte[] src, int offset, int len) {
+        putDecimal(len);
+        put(':');
+        ensure(len);
+        System.arraycopy(src, offset, buf, pos, len);
+        pos += len;
+    }
+
+    private void putInteger(long value) {
+        put('i');
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        putDecimal(value);
+        put('e');
+    }
+
+    private void putDecimal(long value) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += digits;
+    }
+
+    private byte[] scratch(int len) {
+        if (scratch == null || scratch.length < len) {
+            scratch = new byte[len];
+        }
+        return scratch;
+    }
+}
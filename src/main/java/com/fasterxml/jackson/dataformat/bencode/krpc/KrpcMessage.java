@@ -0,0 +1,346 @@
+package com.fasterxml.jackson.dataformat.bencode.krpc;
+
+import com.fasterxml.jackson.dataformat.bencode.bittorrent.CompactPeers;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Mutable KRPC message (BEP 5) for reuse across datagrams: decoded by {@link KrpcCodec} into, encoded from, and
+ * recycled through {@link KrpcMessagePool}. Fields are kept in primitives and in arrays owned by the message, which
+ * grow as needed and are kept across {@link #clear()}, so a message in steady use does not allocate.
+ * <p>
+ * Query arguments ({@code a}) and response values ({@code r}) share their fields. Array getters return the message's
+ * own storage, valid up to the returned length until the message is changed; node ids, {@code target} and {@code
+ * info_hash} are {@value #ID_LENGTH} bytes long, {@code null} if absent.
+ */
+public final class KrpcMessage {
+    public static final int ID_LENGTH = 20;
+    /**
+     * Compact node info: node id, IPv4 address and port.
+     */
+    public static final int NODE_ENTRY_LENGTH = ID_LENGTH + CompactPeers.IPV4_ENTRY_LENGTH;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public enum Type {
+        QUERY('q'), RESPONSE('r'), ERROR('e');
+
+        final byte code;
+
+        Type(char code) {
+            this.code = (byte) code;
+        }
+    }
+
+    public enum Method {
+        PING("ping"), FIND_NODE("find_node"), GET_PEERS("get_peers"), ANNOUNCE_PEER("announce_peer");
+
+        final byte[] name;
+
+        Method(String name) {
+            this.name = name.getBytes(UTF_8);
+        }
+    }
+
+    private Type type;
+    private Method method;
+    private byte[] transactionId = new byte[4];
+    private int transactionIdLength;
+    private byte[] version = new byte[4];
+    private int versionLength = -1;
+
+    private final byte[] id = new byte[ID_LENGTH];
+    private boolean hasId;
+    private final byte[] target = new byte[ID_LENGTH];
+    private boolean hasTarget;
+    private final byte[] infoHash = new byte[ID_LENGTH];
+    private boolean hasInfoHash;
+    private byte[] token = new byte[8];
+    private int tokenLength = -1;
+    private int port = -1;
+    private int impliedPort = -1;
+    private byte[] nodes = new byte[8 * NODE_ENTRY_LENGTH];
+    private int nodeCount = -1;
+    private final CompactPeers values = new CompactPeers(false);
+    private boolean hasValues;
+
+    private int errorCode;
+    private byte[] errorMessage = new byte[32];
+    private int errorMessageLength;
+
+    /**
+     * Resets all fields to absent, keeping storage.
+     */
+    public KrpcMessage clear() {
+        type = null;
+        method = null;
+        transactionIdLength = 0;
+        versionLength = -1;
+        hasId = hasTarget = hasInfoHash = false;
+        tokenLength = -1;
+        port = impliedPort = -1;
+        nodeCount = -1;
+        values.clear();
+        hasValues = false;
+        errorCode = 0;
+        errorMessageLength = 0;
+        return this;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public KrpcMessage setType(Type type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * @return method of a query, null for other messages
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    public KrpcMessage setMethod(Method method) {
+        this.method = method;
+        return this;
+    }
+
+    public byte[] getTransactionId() {
+        return transactionId;
+    }
+
+    public int getTransactionIdLength() {
+        return transactionIdLength;
+    }
+
+    public KrpcMessage setTransactionId(byte[] src, int offset, int len) {
+        transactionId = copy(src, offset, len, transactionId);
+        transactionIdLength = len;
+        return this;
+    }
+
+    /**
+     * Transaction ids are commonly two bytes; sets the id to {@code value} as a big endian short.
+     */
+    public KrpcMessage setTransactionId(int value) {
+        transactionId[0] = (byte) (value >> 8);
+        transactionId[1] = (byte) value;
+        transactionIdLength = 2;
+        return this;
+    }
+
+    /**
+     * @return client version ({@code v}), null if absent
+     */
+    public byte[] getVersion() {
+        return versionLength < 0 ? null : version;
+    }
+
+    public int getVersionLength() {
+        return versionLength;
+    }
+
+    public KrpcMessage setVersion(byte[] src, int offset, int len) {
+        version = copy(src, offset, len, version);
+        versionLength = len;
+        return this;
+    }
+
+    public byte[] getId() {
+        return hasId ? id : null;
+    }
+
+    public KrpcMessage setId(byte[] src, int offset) {
+        System.arraycopy(src, offset, id, 0, ID_LENGTH);
+        hasId = true;
+        return this;
+    }
+
+    public byte[] getTarget() {
+        return hasTarget ? target : null;
+    }
+
+    public KrpcMessage setTarget(byte[] src, int offset) {
+        System.arraycopy(src, offset, target, 0, ID_LENGTH);
+        hasTarget = true;
+        return this;
+    }
+
+    public byte[] getInfoHash() {
+        return hasInfoHash ? infoHash : null;
+    }
+
+    public KrpcMessage setInfoHash(byte[] src, int offset) {
+        System.arraycopy(src, offset, infoHash, 0, ID_LENGTH);
+        hasInfoHash = true;
+        return this;
+    }
+
+    /**
+     * @return token, null if absent
+     */
+    public byte[] getToken() {
+        return tokenLength < 0 ? null : token;
+    }
+
+    public int getTokenLength() {
+        return tokenLength;
+    }
+
+    public KrpcMessage setToken(byte[] src, int offset, int len) {
+        token = copy(src, offset, len, token);
+        tokenLength = len;
+        return this;
+    }
+
+    /**
+     * @return port of {@code announce_peer}, -1 if absent
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public KrpcMessage setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * @return 0 or 1 as given by {@code implied_port}, -1 if absent
+     */
+    public int getImpliedPort() {
+        return impliedPort;
+    }
+
+    public KrpcMessage setImpliedPort(int impliedPort) {
+        this.impliedPort = impliedPort;
+        return this;
+    }
+
+    /**
+     * @return number of compact node infos in {@code nodes}, -1 if absent
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return compact node infos, {@value #NODE_ENTRY_LENGTH} bytes each; null if absent
+     */
+    public byte[] getNodes() {
+        return nodeCount < 0 ? null : nodes;
+    }
+
+    /**
+     * @return offset of the id of node {@code index} in {@link #getNodes()}
+     */
+    public int getNodeIdOffset(int index) {
+        checkNode(index);
+        return index * NODE_ENTRY_LENGTH;
+    }
+
+    public int getNodeAddress(int index) {
+        checkNode(index);
+        final int p = index * NODE_ENTRY_LENGTH + ID_LENGTH;
+        return (nodes[p] & 0xff) << 24 | (nodes[p + 1] & 0xff) << 16 | (nodes[p + 2] & 0xff) << 8 | nodes[p + 3] & 0xff;
+    }
+
+    public int getNodePort(int index) {
+        checkNode(index);
+        final int p = index * NODE_ENTRY_LENGTH + ID_LENGTH + 4;
+        return (nodes[p] & 0xff) << 8 | nodes[p + 1] & 0xff;
+    }
+
+    private void checkNode(int index) {
+        if (index < 0 || index >= nodeCount) {
+            throw new IndexOutOfBoundsException("index " + index + ", node count " + nodeCount);
+        }
+    }
+
+    /**
+     * Sets {@code nodes} to the compact node infos in {@code src}.
+     *
+     * @param len a multiple of {@value #NODE_ENTRY_LENGTH}
+     */
+    public KrpcMessage setNodes(byte[] src, int offset, int len) {
+        if (len % NODE_ENTRY_LENGTH != 0) {
+            throw new IllegalArgumentException("compact node info length " + len + " is not a multiple of " +
+                    NODE_ENTRY_LENGTH);
+        }
+        nodes = copy(src, offset, len, nodes);
+        nodeCount = len / NODE_ENTRY_LENGTH;
+        return this;
+    }
+
+    public KrpcMessage addNode(byte[] nodeId, int idOffset, int address, int port) {
+        if (nodeCount < 0) {
+            nodeCount = 0;
+        }
+        final int p = nodeCount * NODE_ENTRY_LENGTH;
+        if (p + NODE_ENTRY_LENGTH > nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+        }
+        System.arraycopy(nodeId, idOffset, nodes, p, ID_LENGTH);
+        nodes[p + ID_LENGTH] = (byte) (address >> 24);
+        nodes[p + ID_LENGTH + 1] = (byte) (address >> 16);
+        nodes[p + ID_LENGTH + 2] = (byte) (address >> 8);
+        nodes[p + ID_LENGTH + 3] = (byte) address;
+        nodes[p + ID_LENGTH + 4] = (byte) (port >> 8);
+        nodes[p + ID_LENGTH + 5] = (byte) port;
+        nodeCount++;
+        return this;
+    }
+
+    /**
+     * @return peers of a {@code get_peers} response, null if absent; add to the returned list after {@link
+     * #setHasValues(boolean) setHasValues(true)}
+     */
+    public CompactPeers getValues() {
+        return hasValues ? values : null;
+    }
+
+    public KrpcMessage setHasValues(boolean hasValues) {
+        this.hasValues = hasValues;
+        if (!hasValues) {
+            values.clear();
+        }
+        return this;
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public byte[] getErrorMessage() {
+        return errorMessage;
+    }
+
+    public int getErrorMessageLength() {
+        return errorMessageLength;
+    }
+
+    public KrpcMessage setError(int code, byte[] message, int offset, int len) {
+        errorCode = code;
+        errorMessage = copy(message, offset, len, errorMessage);
+        errorMessageLength = len;
+        return this;
+    }
+
+    private static byte[] copy(byte[] src, int offset, int len, byte[] dest) {
+        if (dest.length < len) {
+            dest = new byte[Math.max(len, 2 * dest.length)];
+        }
+        System.arraycopy(src, offset, dest, 0, len);
+        return dest;
+    }
+
+    @Override
+    public String toString() {
+        return "KrpcMessage{type=" + type + ", method=" + method + ", transactionId=" +
+                Arrays.toString(Arrays.copyOf(transactionId, transactionIdLength)) + '}';
+    }
+}
@@ -0,0 +1,51 @@
+package com.fasterxml.jackson.dataformat.bencode.krpc;
+
+/**
+ * Free list of {@link KrpcMessage}s, so a node keeps reusing the messages, and their grown buffers, of earlier
+ * datagrams. Not thread safe; keep one per thread, next to its {@link KrpcCodec}.
+ */
+public class KrpcMessagePool {
+    private final KrpcMessage[] free;
+    private int size;
+
+    public KrpcMessagePool() {
+        this(16);
+    }
+
+    /**
+     * @param capacity number of released messages kept, others are left to the garbage collector
+     */
+    public KrpcMessagePool(int capacity) {
+        free = new KrpcMessage[capacity];
+    }
+
+    /**
+     * @return a cleared message
+     */
+    public KrpcMessage acquire() {
+        if (size == 0) {
+            return new KrpcMessage();
+        }
+        KrpcMessage message = free[--size];
+        free[size] = null;
+        return message;
+    }
+
+    public void release(KrpcMessage message) {
+        if (size < free.length) {
+            free[size++] = message.clear();
+        }
+    }
+
+    /**
+     * @return number of messages available without allocating
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "KrpcMessagePool{size=" + size + ", capacity=" + free.length + '}';
+    }
+}
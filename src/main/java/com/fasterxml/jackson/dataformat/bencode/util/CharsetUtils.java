@@ -1,6 +1,11 @@
 package com.fasterxml.jackson.dataformat.bencode.util;
 
+import org.apache.commons.codec.binary.Base64;
+
+import java.nio.charset.Charset;
+
 public class CharsetUtils {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     private static final int INT_009_0x09 = 0b00001001; //   9  0x09
     private static final int INT_010_0x0A = 0b00001010; //  10  0x0A
@@ -26,46 +31,48 @@ public class CharsetUtils {
     private static final int INT_243_0xF3 = 0b11110011; // 243  0xF3
     private static final int INT_244_0xF4 = 0b11110100; // 244  0xF4
 
+    /**
+     * @return {@code bytes} as UTF-8 text, or Base64 encoded if they are not valid UTF-8
+     */
+    public static String decode(byte[] bytes) {
+        return isUTF8(bytes) ? new String(bytes, UTF_8) : Base64.encodeBase64String(bytes); // TODO add encoding support
+    }
+
     // https://github.com/wayfind/is-utf8
     public static boolean isUTF8(byte[] bytes) {
         int i = 0;
         while (i < bytes.length) {
-            if ((// ASCII
-                    bytes[i] == INT_009_0x09 ||
-                            bytes[i] == INT_010_0x0A ||
-                            bytes[i] == INT_013_0x0D ||
-                            (INT_032_0x20 <= bytes[i] && bytes[i] <= INT_126_0x7E)
-            )
+            final int b = bytes[i] & 0xff;
+            if (// ASCII
+                    b == INT_009_0x09 || b == INT_010_0x0A || b == INT_013_0x0D ||
+                            (INT_032_0x20 <= b && b <= INT_126_0x7E)
             ) {
                 i += 1;
                 continue;
             }
 
-            if ((// non-overlong 2-byte
-                    (INT_194_0xC2 <= bytes[i] && bytes[i] <= INT_223_0xDF) &&
-                            (INT_128_0x80 <= bytes[i + 1] && bytes[i + 1] <= INT_191_0xBF)
-            )
+            if (// non-overlong 2-byte
+                    (INT_194_0xC2 <= b && b <= INT_223_0xDF) &&
+                            in(bytes, i + 1, INT_128_0x80, INT_191_0xBF)
             ) {
                 i += 2;
                 continue;
             }
 
             if ((// excluding overlongs
-                    bytes[i] == INT_224_0xE0 &&
-                            (INT_160_0xA0 <= bytes[i + 1] && bytes[i + 1] <= INT_191_0xBF) &&
-                            (INT_128_0x80 <= bytes[i + 2] && bytes[i + 2] <= INT_191_0xBF)
+                    b == INT_224_0xE0 &&
+                            in(bytes, i + 1, INT_160_0xA0, INT_191_0xBF) &&
+                            in(bytes, i + 2, INT_128_0x80, INT_191_0xBF)
             ) ||
                     (// straight 3-byte
-                            ((INT_225_0xE1 <= bytes[i] && bytes[i] <= INT_236_0xEC) ||
-                                    bytes[i] == INT_238_0xEE ||
-                                    bytes[i] == INT_239_0xEF) &&
-                                    (INT_128_0x80 <= bytes[i + 1] && bytes[i + 1] <= INT_191_0xBF) &&
-                                    (INT_128_0x80 <= bytes[i + 2] && bytes[i + 2] <= INT_191_0xBF)
+                            ((INT_225_0xE1 <= b && b <= INT_236_0xEC) || b == INT_238_0xEE || b == INT_239_0xEF) &&
+                                    in(bytes, i + 1, INT_128_0x80, INT_191_0xBF) &&
+                                    in(bytes, i + 2, INT_128_0x80, INT_191_0xBF)
                     ) ||
                     (// excluding surrogates
-                            bytes[i] == INT_237_0xED &&
-                                    (INT_128_0x80 <= bytes[i + 1] && bytes[i + 1] <= INT_159_0x9F) &&
-                                    (INT_128_0x80 <= bytes[i + 2] && bytes[i + 2] <= INT_191_0xBF)
+                            b == INT_237_0xED &&
+                                    in(bytes, i + 1, INT_128_0x80, INT_159_0x9F) &&
+                                    in(bytes, i + 2, INT_128_0x80, INT_191_0xBF)
                     )
             ) {
                 i += 3;
@@ -73,22 +80,22 @@ public class CharsetUtils {
             }
 
             if ((// planes 1-3
-                    bytes[i] == INT_240_0xF0 &&
-                            (INT_144_0x90 <= bytes[i + 1] && bytes[i + 1] <= INT_191_0xBF) &&
-                            (INT_128_0x80 <= bytes[i + 2] && bytes[i + 2] <= INT_191_0xBF) &&
-                            (INT_128_0x80 <= bytes[i + 3] && bytes[i + 3] <= INT_191_0xBF)
+                    b == INT_240_0xF0 &&
+                            in(bytes, i + 1, INT_144_0x90, INT_191_0xBF) &&
+                            in(bytes, i + 2, INT_128_0x80, INT_191_0xBF) &&
+                            in(bytes, i + 3, INT_128_0x80, INT_191_0xBF)
             ) ||
                     (// planes 4-15
-                            (INT_241_0xF1 <= bytes[i] && bytes[i] <= INT_243_0xF3) &&
-                                    (INT_128_0x80 <= bytes[i + 1] && bytes[i + 1] <= INT_191_0xBF) &&
-                                    (INT_128_0x80 <= bytes[i + 2] && bytes[i + 2] <= INT_191_0xBF) &&
-                                    (INT_128_0x80 <= bytes[i + 3] && bytes[i + 3] <= INT_191_0xBF)
+                            (INT_241_0xF1 <= b && b <= INT_243_0xF3) &&
+                                    in(bytes, i + 1, INT_128_0x80, INT_191_0xBF) &&
+                                    in(bytes, i + 2, INT_128_0x80, INT_191_0xBF) &&
+                                    in(bytes, i + 3, INT_128_0x80, INT_191_0xBF)
                     ) ||
                     (// plane 16
-                            bytes[i] == INT_244_0xF4 &&
-                                    (INT_128_0x80 <= bytes[i + 1] && bytes[i + 1] <= INT_143_0x8F) &&
-                                    (INT_128_0x80 <= bytes[i + 2] && bytes[i + 2] <= INT_191_0xBF) &&
-                                    (INT_128_0x80 <= bytes[i + 3] && bytes[i + 3] <= INT_191_0xBF)
+                            b == INT_244_0xF4 &&
+                                    in(bytes, i + 1, INT_128_0x80, INT_143_0x8F) &&
+                                    in(bytes, i + 2, INT_128_0x80, INT_191_0xBF) &&
+                                    in(bytes, i + 3, INT_128_0x80, INT_191_0xBF)
                     )
             ) {
                 i += 4;
@@ -100,4 +107,15 @@ public class CharsetUtils {
 
         return true;
     }
+
+    /**
+     * @return true if there is a byte at {@code index} and its unsigned value is within {@code [min, max]}
+     */
+    private static boolean in(byte[] bytes, int index, int min, int max) {
+        if (index >= bytes.length) {
+            return false;
+        }
+        final int b = bytes[index] & 0xff;
+        return min <= b && b <= max;
+    }
 }
@@ -0,0 +1,70 @@
+package com.fasterxml.jackson.dataformat.bencode.util;
+
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.*;
+
+/**
+ * Collects a stream of unknown length: up to a given amount in memory, the rest in a temporary file.
+ */
+public class SpoolBuffer implements Closeable {
+    private final ByteArrayBuilder memory;
+    private final int memoryLimit;
+    private File file;
+    private OutputStream fileOut;
+    private long length;
+
+    public SpoolBuffer(int memoryLimit) {
+        this.memoryLimit = memoryLimit;
+        memory = new ByteArrayBuilder(Math.min(memoryLimit, 4000));
+    }
+
+    /**
+     * Reads {@code in} until exhausted.
+     *
+     * @return number of bytes read
+     */
+    public long readFrom(InputStream in) throws IOException {
+        final byte[] chunk = new byte[8000];
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            int toMemory = (int) Math.max(0, Math.min(read, memoryLimit - length));
+            memory.write(chunk, 0, toMemory);
+            if (toMemory < read) {
+                if (fileOut == null) {
+                    file = File.createTempFile("bencode-spool", ".bin");
+                    fileOut = new BufferedOutputStream(new FileOutputStream(file));
+                }
+                fileOut.write(chunk, toMemory, read - toMemory);
+            }
+            length += read;
+        }
+        if (fileOut != null) {
+            fileOut.close();
+        }
+        return length;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return stream replaying the collected content
+     */
+    public InputStream openStream() throws IOException {
+        InputStream in = new ByteArrayInputStream(memory.toByteArray());
+        return file == null ? in : new SequenceInputStream(in, new FileInputStream(file));
+    }
+
+    @Override
+    public void close() throws IOException {
+        memory.release();
+        if (fileOut != null) {
+            fileOut.close();
+        }
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.fasterxml.jackson.dataformat.bencode.util;
+
+/**
+ * UTF-8 helpers working on characters directly, without encoding into temporary arrays.
+ */
+public class Utf8 {
+    /**
+     * Computes the number of bytes {@code text} takes when encoded as UTF-8. Unpaired surrogates count as a single
+     * replacement byte, matching {@link String#getBytes(java.nio.charset.Charset)}.
+     */
+    public static int length(CharSequence text, int offset, int len) {
+        int bytes = len;
+        final int limit = offset + len;
+        for (int i = offset; i < limit; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < limit && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // two chars, four bytes
+                bytes += 2;
+                i++;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Compares two strings by code points, which is the order of their UTF-8 encodings compared as unsigned bytes,
+     * without encoding them. Differs from {@link String#compareTo(String)} only for supplementary characters.
+     */
+    public static int compare(CharSequence a, CharSequence b) {
+        final int len = Math.min(a.length(), b.length());
+        for (int i = 0; i < len; i++) {
+            int c1 = a.charAt(i);
+            int c2 = b.charAt(i);
+            if (c1 != c2) {
+                if (c1 >= 0xd800 && c2 >= 0xd800) {
+                    // move surrogates above the rest of the basic plane
+                    c1 += c1 >= 0xe000 ? -0x800 : 0x2000;
+                    c2 += c2 >= 0xe000 ? -0x800 : 0x2000;
+                }
+                return c1 - c2;
+            }
+        }
+        return a.length() - b.length();
+    }
+}
@@ -0,0 +1,119 @@
+package com.fasterxml.jackson.dataformat.bencode.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Structural scanning of bencoded content held in memory, without decoding any strings or integers.
+ */
+public class ValueScanner {
+    private static final byte IN_LIST = 0;
+    private static final byte IN_DICTIONARY_KEY = 1;
+    private static final byte IN_DICTIONARY_VALUE = 2;
+
+    /**
+     * Finds the end of the value starting at {@code offset}, verifying that it is well-formed: lengths and integers
+     * consist of digits, containers are closed, dictionary keys are strings and every key has a value. Key order is
+     * not checked.
+     *
+     * @return index right after the value
+     * @throws IOException if the value is malformed or not complete before {@code limit}
+     */
+    public static int valueEnd(byte[] buf, int offset, int limit) throws IOException {
+        // allocated for containers only, scalars are common
+        byte[] stack = null;
+        int depth = 0;
+        int i = offset;
+        do {
+            if (i >= limit) {
+                throw new IOException("unexpected end of value");
+            }
+            final byte c = buf[i];
+            if (depth > 0 && stack[depth - 1] == IN_DICTIONARY_KEY && c != 'e' && (c < '0' || c > '9')) {
+                throw new IOException("dictionary key must be a byte string");
+            }
+            switch (c) {
+                case 'd':
+                case 'l':
+                    if (depth > 0) {
+                        valueDone(stack, depth);
+                    }
+                    if (stack == null) {
+                        stack = new byte[16];
+                    } else if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = c == 'd' ? IN_DICTIONARY_KEY : IN_LIST;
+                    i++;
+                    continue;
+                case 'e':
+                    if (depth == 0) {
+                        throw new IOException("unexpected end marker");
+                    }
+                    if (stack[depth - 1] == IN_DICTIONARY_VALUE) {
+                        throw new IOException("uneven dictionary contents");
+                    }
+                    depth--;
+                    i++;
+                    break;
+                case 'i':
+                    i = integerEnd(buf, i + 1, limit);
+                    break;
+                default:
+                    i = stringEnd(buf, i, limit);
+            }
+            if (depth > 0 && c != 'e') {
+                valueDone(stack, depth);
+            }
+        } while (depth > 0);
+        return i;
+    }
+
+    private static void valueDone(byte[] stack, int depth) {
+        byte state = stack[depth - 1];
+        if (state != IN_LIST) {
+            stack[depth - 1] = state == IN_DICTIONARY_KEY ? IN_DICTIONARY_VALUE : IN_DICTIONARY_KEY;
+        }
+    }
+
+    /**
+     * @param offset index right after the {@code i} prefix
+     * @return index right after the closing {@code e}
+     */
+    public static int integerEnd(byte[] buf, int offset, int limit) throws IOException {
+        int i = offset;
+        if (i < limit && buf[i] == '-') {
+            i++;
+        }
+        final int digitsStart = i;
+        while (i < limit && buf[i] >= '0' && buf[i] <= '9') {
+            i++;
+        }
+        if (i == digitsStart || i >= limit || buf[i] != 'e') {
+            throw new IOException("malformed integer");
+        }
+        return i + 1;
+    }
+
+    /**
+     * @param offset index of the first digit of the length prefix
+     * @return index right after the string payload
+     */
+    public static int stringEnd(byte[] buf, int offset, int limit) throws IOException {
+        long len = 0;
+        int i = offset;
+        while (i < limit && buf[i] >= '0' && buf[i] <= '9') {
+            len = len * 10 + buf[i++] - '0';
+            if (len > Integer.MAX_VALUE) {
+                throw new IOException("illegal byte string size");
+            }
+        }
+        if (i == offset || i >= limit || buf[i] != ':') {
+            throw new IOException("malformed byte string length token");
+        }
+        if (len > limit - i - 1) {
+            throw new IOException("unexpected end of value");
+        }
+        return i + 1 + (int) len;
+    }
+}
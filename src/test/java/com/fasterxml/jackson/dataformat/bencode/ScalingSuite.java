@@ -0,0 +1,361 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.bencode.corpus.CorpusGenerator;
+import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * How parse, generate and bind costs grow with document size and nesting depth. Sizes double from 1 MB up to
+ * {@code scaling.maxBytes} (default 256m, accepts k/m/g suffixes), depths from 1000 up to {@code scaling.maxDepth}
+ * (default 100000). Time per byte or level must stay within a constant factor of the best one measured at smaller or
+ * equal sizes, and streaming runs must not retain more heap as documents grow. Every measurement is written to the CSV file named by
+ * {@code scaling.report}, if set.
+ * <p>
+ * Takes minutes, so it is not part of the regular test run: {@code mvn test -Pscaling [-Dscaling.maxBytes=4g]}.
+ */
+public class ScalingSuite {
+    private static final long MIN_BYTES = 1 << 20;
+    private static final long MAX_BYTES = CorpusGenerator.parseSize(System.getProperty("scaling.maxBytes", "256m"));
+    private static final long MAX_BIND_BYTES = Math.min(MAX_BYTES, 16 << 20);
+    private static final int MIN_DEPTH = 1000;
+    private static final int MAX_DEPTH = Integer.getInteger("scaling.maxDepth", 100000);
+    /**
+     * Allowed ratio between the time per unit at some size and the best time per unit up to that size.
+     */
+    private static final double LINEARITY_TOLERANCE = 3.0;
+    /**
+     * Heap a streaming run may hold on to, on top of what was live before.
+     */
+    private static final long RETAINED_HEAP_LIMIT = 16 << 20;
+    /**
+     * Runs are repeated until they took at least this long, for stable timing of small inputs.
+     */
+    private static final long MIN_NANOS = 200000000L;
+    /**
+     * Each scenario first runs its smallest input for this long, so that later runs are compiled code.
+     */
+    private static final long WARMUP_NANOS = 2000000000L;
+
+    private static final CorpusGenerator.Shape[] STREAMING_SHAPES = {
+            CorpusGenerator.Shape.MULTI_FILE_TORRENT,
+            CorpusGenerator.Shape.LARGE_PIECES,
+            CorpusGenerator.Shape.SCRAPE,
+            CorpusGenerator.Shape.NESTED_EXTENSIONS,
+            CorpusGenerator.Shape.KRPC_STREAM
+    };
+
+    private static final BEncodeFactory FACTORY = new BEncodeFactory();
+    private static PrintWriter report;
+
+    private interface Run {
+        /**
+         * @param probe to be called with the number of units processed so far
+         */
+        void run(Probe probe) throws IOException;
+    }
+
+    private static final class Measurement {
+        final long size;
+        final long nanos;
+        final long retained;
+
+        Measurement(long size, long nanos, long retained) {
+            this.size = size;
+            this.nanos = nanos;
+            this.retained = retained;
+        }
+
+        double nanosPerUnit() {
+            return (double) nanos / size;
+        }
+    }
+
+    /**
+     * Samples live heap once half of the input has been processed; time spent sampling is not counted.
+     */
+    private static final class Probe {
+        private final long threshold;
+        private final long baseline;
+        long retained = -1;
+        long overhead;
+
+        Probe(long size, long baseline) {
+            this.threshold = size / 2;
+            this.baseline = baseline;
+        }
+
+        void progress(long units) {
+            if (retained < 0 && units >= threshold) {
+                long start = System.nanoTime();
+                retained = Math.max(0, liveHeap() - baseline);
+                overhead += System.nanoTime() - start;
+            }
+        }
+    }
+
+    @BeforeClass
+    public static void openReport() throws IOException {
+        String path = System.getProperty("scaling.report");
+        if (path != null) {
+            report = new PrintWriter(new FileWriter(path));
+            report.println("scenario,size,nanos,nanos_per_unit,retained_heap_bytes");
+        }
+    }
+
+    @AfterClass
+    public static void closeReport() {
+        if (report != null) {
+            report.close();
+        }
+    }
+
+    private static long liveHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * @param streaming whether to sample retained heap, during the first run
+     */
+    private static Measurement measure(long size, Run run, boolean streaming) throws IOException {
+        Probe probe = new Probe(streaming ? size : Long.MAX_VALUE, streaming ? liveHeap() : 0);
+        int repetitions = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            run.run(repetitions == 0 ? probe : new Probe(Long.MAX_VALUE, 0));
+            repetitions++;
+        } while ((elapsed = System.nanoTime() - start - probe.overhead) < MIN_NANOS);
+        return new Measurement(size, elapsed / repetitions, probe.retained);
+    }
+
+    private static void warmUp(Run run) throws IOException {
+        long start = System.nanoTime();
+        do {
+            run.run(new Probe(Long.MAX_VALUE, 0));
+        } while (System.nanoTime() - start < WARMUP_NANOS);
+    }
+
+    private static void check(String scenario, List<Measurement> measurements, boolean streaming) {
+        if (report != null) {
+            for (Measurement m : measurements) {
+                report.println(scenario + "," + m.size + "," + m.nanos + "," + m.nanosPerUnit() + "," + m.retained);
+            }
+            report.flush();
+        }
+        double best = Double.MAX_VALUE;
+        for (Measurement m : measurements) {
+            best = Math.min(best, m.nanosPerUnit());
+            assertTrue(scenario + " at " + m.size + " took " + m.nanosPerUnit() + " ns per unit, best was " + best,
+                    m.nanosPerUnit() <= best * LINEARITY_TOLERANCE);
+            if (streaming) {
+                assertTrue(scenario + " at " + m.size + " retained " + m.retained + " bytes",
+                        m.retained >= 0 && m.retained <= RETAINED_HEAP_LIMIT);
+            }
+        }
+    }
+
+    private static File corpus(CorpusGenerator.Shape shape, long size) throws IOException {
+        File file = File.createTempFile("scaling-" + shape.name().toLowerCase(), ".bencode");
+        file.deleteOnExit();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            new CorpusGenerator(size).write(shape, size, out);
+        }
+        return file;
+    }
+
+    private static void parse(InputStream in, final Probe probe) throws IOException {
+        final long[] position = new long[1];
+        InputStream counting = new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    probe.progress(position[0] += n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                probe.progress(position[0] += skipped);
+                return skipped;
+            }
+        };
+        try (JsonParser p = FACTORY.createParser(counting)) {
+            while (p.nextToken() != null) {
+                // tokens only
+            }
+        }
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        for (CorpusGenerator.Shape shape : STREAMING_SHAPES) {
+            List<Measurement> measurements = new ArrayList<Measurement>();
+            for (long size = MIN_BYTES; size <= MAX_BYTES; size *= 2) {
+                final File file = corpus(shape, size);
+                try {
+                    Run run = new Run() {
+                        @Override
+                        public void run(Probe probe) throws IOException {
+                            parse(new FileInputStream(file), probe);
+                        }
+                    };
+                    if (size == MIN_BYTES) {
+                        warmUp(run);
+                    }
+                    measurements.add(measure(file.length(), run, true));
+                } finally {
+                    file.delete();
+                }
+            }
+            check("parse." + shape.name().toLowerCase(), measurements, true);
+        }
+    }
+
+    @Test
+    public void testGenerate() throws Exception {
+        for (final CorpusGenerator.Shape shape : STREAMING_SHAPES) {
+            List<Measurement> measurements = new ArrayList<Measurement>();
+            for (long size = MIN_BYTES; size <= MAX_BYTES; size *= 2) {
+                final long target = size;
+                Run run = new Run() {
+                    @Override
+                    public void run(Probe probe) throws IOException {
+                        new CorpusGenerator(target).write(shape, target, new DiscardingOutputStream(probe));
+                    }
+                };
+                if (size == MIN_BYTES) {
+                    warmUp(run);
+                }
+                measurements.add(measure(size, run, true));
+            }
+            check("generate." + shape.name().toLowerCase(), measurements, true);
+        }
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        final BEncodeMapper mapper = new BEncodeMapper();
+        List<Measurement> measurements = new ArrayList<Measurement>();
+        for (long size = MIN_BYTES; size <= MAX_BIND_BYTES; size *= 2) {
+            final File file = corpus(CorpusGenerator.Shape.MULTI_FILE_TORRENT, size);
+            try {
+                Run run = new Run() {
+                    @Override
+                    public void run(Probe probe) throws IOException {
+                        mapper.readValue(file, Torrent.class);
+                    }
+                };
+                if (size == MIN_BYTES) {
+                    warmUp(run);
+                }
+                measurements.add(measure(file.length(), run, false));
+            } finally {
+                file.delete();
+            }
+        }
+        check("bind.multi_file_torrent", measurements, false);
+    }
+
+    private static List<Integer> depths() {
+        List<Integer> depths = new ArrayList<Integer>();
+        for (int depth = MIN_DEPTH; depth < MAX_DEPTH; depth *= 2) {
+            depths.add(depth);
+        }
+        depths.add(MAX_DEPTH);
+        return depths;
+    }
+
+    @Test
+    public void testNestingDepth() throws Exception {
+        List<Measurement> parse = new ArrayList<Measurement>();
+        List<Measurement> generate = new ArrayList<Measurement>();
+        for (final int depth : depths()) {
+            StringBuilder sb = new StringBuilder(depth * 5 + 3);
+            for (int i = 0; i < depth; i++) {
+                sb.append("d1:a");
+            }
+            sb.append("i0e");
+            for (int i = 0; i < depth; i++) {
+                sb.append('e');
+            }
+            final byte[] data = sb.toString().getBytes(Charset.forName("ISO-8859-1"));
+            Run parseRun = new Run() {
+                @Override
+                public void run(Probe probe) throws IOException {
+                    try (JsonParser p = FACTORY.createParser(data)) {
+                        while (p.nextToken() != null) {
+                            // tokens only
+                        }
+                    }
+                }
+            };
+            Run generateRun = new Run() {
+                @Override
+                public void run(Probe probe) throws IOException {
+                    try (JsonGenerator gen = FACTORY.createGenerator(new DiscardingOutputStream(probe))) {
+                        for (int i = 0; i < depth; i++) {
+                            gen.writeStartObject();
+                            gen.writeFieldName("a");
+                        }
+                        gen.writeNumber(0);
+                        for (int i = 0; i < depth; i++) {
+                            gen.writeEndObject();
+                        }
+                    }
+                }
+            };
+            if (depth == MIN_DEPTH) {
+                warmUp(parseRun);
+                warmUp(generateRun);
+            }
+            parse.add(measure(depth, parseRun, false));
+            generate.add(measure(depth, generateRun, false));
+        }
+        check("parse.depth", parse, false);
+        check("generate.depth", generate, false);
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+        private final Probe probe;
+        private long count;
+
+        DiscardingOutputStream(Probe probe) {
+            this.probe = probe;
+        }
+
+        @Override
+        public void write(int b) {
+            probe.progress(++count);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            probe.progress(count += len);
+        }
+    }
+}
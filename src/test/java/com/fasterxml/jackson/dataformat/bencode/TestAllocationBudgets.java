@@ -0,0 +1,159 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.bencode.krpc.KrpcCodec;
+import com.fasterxml.jackson.dataformat.bencode.krpc.KrpcMessage;
+import com.fasterxml.jackson.dataformat.bencode.krpc.KrpcMessagePool;
+import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
+import com.fasterxml.jackson.dataformat.bencode.types.User;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks bytes allocated per operation on hot paths against the budgets in {@code /allocation-budgets.properties}.
+ * Each scenario is warmed up first, so it is measured after JIT compilation, as in production.
+ */
+public class TestAllocationBudgets {
+    private static final int WARMUP = 5000;
+    private static final int ITERATIONS = 2000;
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static Properties budgets;
+
+    private interface Operation {
+        void run() throws IOException;
+    }
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        budgets = new Properties();
+        try (InputStream in = TestAllocationBudgets.class.getResourceAsStream("/allocation-budgets.properties")) {
+            budgets.load(in);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void assertWithinBudget(String scenario, Operation operation) throws IOException {
+        String budget = budgets.getProperty(scenario);
+        if (budget == null) {
+            fail("no allocation budget for " + scenario);
+        }
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        // the smallest of a few rounds, to leave out noise such as TLAB refills of the measurement itself
+        long perOperation = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = allocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                operation.run();
+            }
+            perOperation = Math.min(perOperation, (allocatedBytes() - start) / ITERATIONS);
+        }
+        assertTrue(scenario + " allocated " + perOperation + " bytes per operation, budget is " + budget,
+                perOperation <= Long.parseLong(budget));
+    }
+
+    private static int tokens(BEncodeFactory factory, byte[] data) throws IOException {
+        int count = 0;
+        try (JsonParser p = factory.createParser(data)) {
+            while (p.nextToken() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testParserTokens() throws Exception {
+        final BEncodeFactory factory = new BEncodeFactory();
+        final byte[] data = TestUtils.readFileBinary("/GET-STARTED.torrent");
+        assertWithinBudget("parser.tokens", new Operation() {
+            @Override
+            public void run() throws IOException {
+                tokens(factory, data);
+            }
+        });
+    }
+
+    @Test
+    public void testBindSmallMessage() throws Exception {
+        final ObjectMapper mapper = new BEncodeMapper();
+        final byte[] data = TestUtils.TUTORIAL_EXAMPLE_ENCODED.getBytes(Charset.forName("ISO-8859-1"));
+        assertWithinBudget("bind.user", new Operation() {
+            @Override
+            public void run() throws IOException {
+                mapper.readValue(data, User.class);
+            }
+        });
+    }
+
+    @Test
+    public void testBindNestedPolymorphic() throws Exception {
+        final ObjectMapper mapper = new BEncodeMapper();
+        // type ids last at every level; the outermost dictionary is copied once, the nested ones are not copied again
+        String encoded = "d1:q4:ping1:t2:aa1:y1:qe";
+        for (int i = 0; i < 16; i++) {
+            encoded = "d4:next" + encoded + "1:q4:ping1:t2:aa1:y1:qe";
+        }
+        final byte[] data = encoded.getBytes(Charset.forName("ISO-8859-1"));
+        assertWithinBudget("bind.polymorphic", new Operation() {
+            @Override
+            public void run() throws IOException {
+                mapper.readValue(new ByteArrayInputStream(data), TestPolymorphicTypes.Message.class);
+            }
+        });
+    }
+
+    @Test
+    public void testGeneratorWrite() throws Exception {
+        final ObjectMapper mapper = new BEncodeMapper();
+        final Torrent torrent = mapper.readValue(TestUtils.readFileBinary("/GET-STARTED.torrent"), Torrent.class);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 14);
+        assertWithinBudget("generator.torrent", new Operation() {
+            @Override
+            public void run() throws IOException {
+                out.reset();
+                mapper.writeValue(out, torrent);
+            }
+        });
+    }
+
+    @Test
+    public void testKrpcRoundTrip() throws Exception {
+        final KrpcCodec codec = new KrpcCodec();
+        final KrpcMessagePool pool = new KrpcMessagePool();
+        final byte[] query = ("d1:ad2:id20:abcdefghij01234567896:target20:mnopqrstuvwxyz123456e" +
+                "1:q9:find_node1:t2:aa1:y1:qe").getBytes(Charset.forName("ISO-8859-1"));
+        final byte[] out = new byte[1500];
+        assertWithinBudget("krpc.roundtrip", new Operation() {
+            @Override
+            public void run() throws IOException {
+                KrpcMessage message = codec.decode(query, 0, query.length, pool.acquire());
+                codec.encode(message, out, 0, out.length);
+                pool.release(message);
+            }
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestEmbeddedValues {
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    // BEP 9 data message: a dictionary followed by a piece of the metadata
+    private static final String DICTIONARY = "d8:msg_typei1e5:piecei0e10:total_sizei8ee";
+    private static final String PACKET = "\u0000\u0000\u0000\u0001\u0014" + DICTIONARY + "d4:i:xe";
+
+    private final BEncodeMapper mapper = new BEncodeMapper();
+
+    @Test
+    public void testByteArrayWindow() throws Exception {
+        byte[] packet = PACKET.getBytes(LATIN_1);
+        BEncodeParser p = mapper.getFactory().createEmbeddedParser(packet, 5, packet.length - 5);
+        Map<?, ?> message = mapper.readValue(p, Map.class);
+        assertThat(message.get("total_size"), is((Object) 8));
+        assertThat(p.getConsumedBytes(), is((long) DICTIONARY.length()));
+        // the payload is malformed, but never looked at
+        assertThat(p.nextToken(), nullValue());
+        assertThat(p.getConsumedBytes(), is((long) DICTIONARY.length()));
+    }
+
+    @Test
+    public void testByteBufferWindow() throws Exception {
+        byte[] packet = PACKET.getBytes(LATIN_1);
+        ByteBuffer direct = ByteBuffer.allocateDirect(packet.length);
+        direct.put(packet).flip();
+        direct.position(5);
+        BEncodeParser p = mapper.getFactory().createEmbeddedParser(direct);
+        assertThat(mapper.readValue(p, Map.class).size(), is(3));
+        assertThat(p.getConsumedBytes(), is((long) DICTIONARY.length()));
+        assertThat(direct.position(), is(5));
+
+        ByteBuffer heap = ByteBuffer.wrap(packet);
+        heap.position(5);
+        p = mapper.getFactory().createEmbeddedParser(heap);
+        assertThat(mapper.readValue(p, Map.class).size(), is(3));
+        assertThat(p.getConsumedBytes(), is((long) DICTIONARY.length()));
+    }
+
+    @Test
+    public void testScalarRoot() throws Exception {
+        byte[] data = "4:spam4:eggs".getBytes(LATIN_1);
+        BEncodeParser p = mapper.getFactory().createEmbeddedParser(data, 0, data.length);
+        assertThat(p.nextToken(), is(JsonToken.VALUE_STRING));
+        // not read, skipped when moving on
+        assertThat(p.nextToken(), nullValue());
+        assertThat(p.getConsumedBytes(), is(6L));
+    }
+
+    @Test
+    public void testReleaseBuffered() throws Exception {
+        byte[] packet = (DICTIONARY + "metadata").getBytes(LATIN_1);
+        // no mark support, so the parser reads ahead
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(packet)) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+        JsonParser p = mapper.getFactory().createParser(in);
+        assertThat(p.nextToken(), is(JsonToken.START_OBJECT));
+        p.skipChildren();
+        assertThat(((BEncodeParser) p).getConsumedBytes(), is((long) DICTIONARY.length()));
+
+        ByteArrayOutputStream rest = new ByteArrayOutputStream();
+        int released = p.releaseBuffered(rest);
+        byte[] tail = new byte[16];
+        int read = Math.max(in.read(tail), 0);
+        rest.write(tail, 0, read);
+        assertThat(released + read, is(8));
+        assertThat(new String(rest.toByteArray(), LATIN_1), is("metadata"));
+
+        // nothing is read ahead of byte arrays
+        p = mapper.getFactory().createParser(Arrays.copyOf(packet, packet.length));
+        p.nextToken();
+        p.skipChildren();
+        assertThat(p.releaseBuffered(new ByteArrayOutputStream()), is(0));
+    }
+}
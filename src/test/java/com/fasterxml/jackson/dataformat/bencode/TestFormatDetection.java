@@ -0,0 +1,75 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.format.DataFormatDetector;
+import com.fasterxml.jackson.core.format.DataFormatMatcher;
+import com.fasterxml.jackson.core.format.InputAccessor;
+import com.fasterxml.jackson.core.format.MatchStrength;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TestFormatDetection {
+    private final BEncodeFactory underTest = new BEncodeFactory();
+
+    @Test
+    public void testSolidMatches() throws Exception {
+        // complete first elements
+        for (String s : new String[]{"i42e", "i-7e", "4:spam", "d3:cowi1ee", "d4:infod6:length", "l4:spami42ee",
+                "li1ei2ee", "d8:announce41:http://torrent.ubuntu.com:6969/announce"}) {
+            assertThat(s, strength(s), is(MatchStrength.SOLID_MATCH));
+        }
+        assertThat(strength(TestUtils.TUTORIAL_EXAMPLE_ENCODED), is(MatchStrength.SOLID_MATCH));
+    }
+
+    @Test
+    public void testNoMatches() throws Exception {
+        for (String s : new String[]{"{\"a\":1}", "[1,2]", "\"text\"", "true", ":)\n", "dx", "d3:cowe", "i-0e",
+                "i01e", "03:abc", "lx", "d3:abcx", "ix"}) {
+            assertThat(s, strength(s), is(MatchStrength.NO_MATCH));
+        }
+    }
+
+    @Test
+    public void testText() throws Exception {
+        for (String s : new String[]{"description: a YAML document", "delete from t", "lemon", "list of things",
+                "2:30pm", "li", "de", "le", "4:sp", "d5:ab", "12:30", "lde"}) {
+            assertThat(s, strength(s), not(MatchStrength.SOLID_MATCH));
+        }
+        for (String s : new String[]{"description: a YAML document", "lemon", "list of things", "2:30pm"}) {
+            assertThat(s, strength(s), is(MatchStrength.NO_MATCH));
+        }
+    }
+
+    @Test
+    public void testIncompleteInput() throws Exception {
+        assertThat(strength(""), is(MatchStrength.INCONCLUSIVE));
+        assertThat(strength("42"), is(MatchStrength.INCONCLUSIVE));
+        assertThat(strength("d"), is(MatchStrength.WEAK_MATCH));
+        assertThat(strength("d3:"), is(MatchStrength.WEAK_MATCH));
+        assertThat(strength("d3:cow"), is(MatchStrength.WEAK_MATCH));
+        assertThat(strength("d5:ab"), is(MatchStrength.WEAK_MATCH));
+        assertThat(strength("de"), is(MatchStrength.WEAK_MATCH));
+        assertThat(strength("le"), is(MatchStrength.WEAK_MATCH));
+        assertThat(strength("4:sp"), is(MatchStrength.WEAK_MATCH));
+    }
+
+    @Test
+    public void testDetector() throws Exception {
+        DataFormatDetector detector = new DataFormatDetector(new JsonFactory(), underTest);
+        DataFormatMatcher match = detector.findFormat(TestUtils.TUTORIAL_EXAMPLE_ENCODED.getBytes("ISO-8859-1"));
+        assertThat(match.getMatch(), sameInstance((JsonFactory) underTest));
+        match = detector.findFormat("{\"a\":1}".getBytes("UTF-8"));
+        assertThat(match.getMatchedFormatName(), is("JSON"));
+        // text is left to formats which know better, not claimed on the strength of "de"
+        match = detector.findFormat("delete".getBytes("UTF-8"));
+        assertThat(match.getMatchStrength() == MatchStrength.SOLID_MATCH, is(false));
+    }
+
+    private MatchStrength strength(String input) throws Exception {
+        return underTest.hasFormat(new InputAccessor.Std(input.getBytes("ISO-8859-1")));
+    }
+}
@@ -1,5 +1,6 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
 import com.fasterxml.jackson.dataformat.bencode.types.User;
@@ -10,12 +11,16 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 public class TestFullDataBindingRead {
-    private ObjectMapper underTest;
+    private BEncodeMapper underTest;
 
     @Before
     public void startUp() throws IOException {
@@ -49,4 +54,90 @@ public class TestFullDataBindingRead {
         assertThat(ubuntu.getInfo().getPieceLength(), is(524288));
         assertThat(ubuntu.getInfo().getPieces().length, is(35320));
     }
+
+    @Test
+    public void testReadValuesAtPath() throws Exception {
+        File getStarted = new File("src/test/resources/GET-STARTED.torrent");
+        List<Torrent.Info.File> files = new ArrayList<Torrent.Info.File>();
+        try (BEncodeValueIterator<Torrent.Info.File> it =
+                     underTest.readValues(getStarted, "/info/files", Torrent.Info.File.class)) {
+            while (it.hasNext()) {
+                files.add(it.next());
+            }
+        }
+        assertThat(files.size(), is(31));
+        assertThat(files.get(0).getPath(), hasItems("bittorrentisnotacrime-sticker.pdf"));
+        assertThat(files.get(0).getLength(), is(51090L));
+        assertThat(files.get(30).getPath(), hasItems("Wallpapers", "BitTorrent Wallpaper.png"));
+        assertThat(files.get(30).getLength(), is(8723797L));
+
+        BEncodeValueIterator<List> announceList = underTest.readValues(getStarted, "/announce-list", List.class);
+        assertThat(announceList.stream().count(), is(3L));
+
+        List<String> keys = new ArrayList<String>();
+        try (BEncodeValueIterator<Object> it = underTest.readValues(getStarted, "/info", Object.class)) {
+            while (it.hasNext()) {
+                it.next();
+                keys.add(it.getCurrentKey());
+            }
+        }
+        assertThat(keys, is((List<String>) java.util.Arrays.asList("files", "name", "piece length", "pieces")));
+
+        BEncodeValueIterator<String> nested = underTest.readValues(getStarted, "/announce-list/1", String.class);
+        assertThat(nested.next(), is("udp://tracker.openbittorrent.com:80/announce"));
+        assertThat(nested.hasNext(), is(false));
+
+        assertThat(underTest.readValues(getStarted, "/info/missing", Object.class).hasNext(), is(false));
+    }
+
+    @Test
+    public void testReadValuesClosesStream() throws Exception {
+        final boolean[] closed = new boolean[1];
+        byte[] torrent = TestUtils.readFileBinary("/GET-STARTED.torrent");
+        InputStream in = new ByteArrayInputStream(torrent) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        BEncodeValueIterator<Object> it = underTest.readValues(in, "/info/missing", Object.class);
+        assertThat(it.hasNext(), is(false));
+        assertThat(closed[0], is(true));
+
+        closed[0] = false;
+        in = new ByteArrayInputStream(torrent) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        try {
+            underTest.readValues(in, "/info/name", Object.class);
+            fail();
+        } catch (JsonMappingException e) {
+            assertThat(closed[0], is(true));
+        }
+    }
+
+    @Test
+    public void testKeysOrderedAsBytes() throws Exception {
+        // U+FB01 encodes to EF AC 81, sorting before U+1F600 (F0 9F 98 80) though its UTF-16 form sorts after
+        byte[] encoded = "d3:\ufb01i1e4:\ud83d\ude00i2ee".getBytes("UTF-8");
+        Map<?, ?> m = underTest.readValue(encoded, Map.class);
+        assertThat(m.size(), is(2));
+
+        // binary keys are exposed Base64 encoded, which has a different order
+        byte[] binaryKeys = new byte[]{'d', '1', ':', (byte) 0x80, 'i', '1', 'e', '1', ':', (byte) 0xff, 'i', '2', 'e', 'e'};
+        m = underTest.readValue(binaryKeys, Map.class);
+        assertThat(m.containsKey("gA==") && m.containsKey("/w=="), is(true));
+    }
+
+    @Test
+    public void testNonAsciiText() throws Exception {
+        byte[] encoded = "l7:gr\u00fc\u00dfe4:\ud83d\ude00e".getBytes("UTF-8");
+        assertThat(underTest.readValue(encoded, String[].class), is(new String[]{"gr\u00fc\u00dfe", "\ud83d\ude00"}));
+
+        // truncated sequences are not text
+        assertThat(underTest.readValue(new byte[]{'1', ':', (byte) 0xc3}, String.class), is("ww=="));
+    }
 }
@@ -1,15 +1,26 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
 import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
 import com.fasterxml.jackson.dataformat.bencode.types.User;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -66,9 +77,11 @@ public class TestFullDataBindingWrite {
 
         t.setInfo(i);
 
-        underTest.writeValue(out, t);
+        CountingOutputStream counting = new CountingOutputStream(out);
+        underTest.writeValue(counting, t);
 
         assertThat(out.toString("ISO-8859-1"), is(new String(ubuntuIsoTorrent, "ISO-8859-1")));
+        assertThat("output should be written in a handful of chunks", counting.writes < 5, is(true));
     }
 
     @Test
@@ -139,4 +152,93 @@ public class TestFullDataBindingWrite {
 
         assertThat(out.toString("ISO-8859-1"), is(new String(getStartedTorrent, "ISO-8859-1")));
     }
+
+    @Test
+    public void testWriteUnorderedMapWithSortKeys() throws Exception {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("spam", Arrays.asList("a", "b"));
+        m.put("cow", "moo");
+        byte[] encoded = underTest.writer()
+                .without(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .with(BEncodeGenerator.Feature.SORT_KEYS)
+                .writeValueAsBytes(m);
+        assertThat(new String(encoded, "ISO-8859-1"), is("d3:cow3:moo4:spaml1:a1:bee"));
+    }
+
+    @Test
+    public void testOrderedMapsNotCopied() throws Exception {
+        BEncodeModule.KeyOrderingConverter converter = new BEncodeModule.KeyOrderingConverter(
+                underTest.getTypeFactory().constructType(Map.class));
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("cow", "moo");
+        m.put("spam", "eggs");
+        assertThat(converter.convert(m) == m, is(true));
+        m.put("ham", "eggs");
+        Object sorted = converter.convert(m);
+        assertThat(sorted == m, is(false));
+        assertThat(((Map<?, ?>) sorted).keySet().toString(), is("[cow, ham, spam]"));
+    }
+
+    @Test
+    public void testPropertyNamesArePreEncoded() throws Exception {
+        JsonSerializer<Object> serializer = underTest.getSerializerProviderInstance().findValueSerializer(User.class);
+        Iterator<PropertyWriter> properties = serializer.properties();
+        while (properties.hasNext()) {
+            BeanPropertyWriter property = (BeanPropertyWriter) properties.next();
+            assertThat(property.getSerializedName() instanceof BEncodeSerializedString, is(true));
+        }
+    }
+
+    @Test
+    public void testWriteValueAsBytesAndSerializedSize() throws Exception {
+        byte[] ubuntuIsoTorrent = TestUtils.readFileBinary("/ubuntu-13.10-desktop-amd64.iso.torrent");
+        Torrent t = underTest.readValue(ubuntuIsoTorrent, Torrent.class);
+
+        byte[] encoded = underTest.writeValueAsBytes(t);
+        assertThat(encoded, is(ubuntuIsoTorrent));
+        assertThat(((BEncodeMapper) underTest).serializedSize(t), is((long) ubuntuIsoTorrent.length));
+
+        Map<String, Object> m = Collections.<String, Object>singletonMap("cow", "moo");
+        assertThat(new String(underTest.writeValueAsBytes(m), "ISO-8859-1"), is("d3:cow3:mooe"));
+        assertThat(((BEncodeMapper) underTest).serializedSize(m), is(12L));
+    }
+
+    @Test
+    public void testKeysOrderedAsBytes() throws Exception {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        m.put("\ud83d\ude00", 2);
+        m.put("\ufb01", 1);
+        assertThat(new String(underTest.writeValueAsBytes(m), "UTF-8"), is("d3:\ufb01i1e4:\ud83d\ude00i2ee"));
+        assertThat(new String(underTest.writeValueAsBytes(new TreeMap<String, Object>(m)), "UTF-8"),
+                is("d3:\ufb01i1e4:\ud83d\ude00i2ee"));
+        assertThat(new String(underTest.writeValueAsBytes(new SupplementaryBean()), "UTF-8"),
+                is("d3:\ufb01i1e4:\ud83d\ude00i2ee"));
+    }
+
+    static class SupplementaryBean {
+        @JsonProperty("\ud83d\ude00")
+        public int b = 2;
+        @JsonProperty("\ufb01")
+        public int a = 1;
+    }
+
+    static class CountingOutputStream extends FilterOutputStream {
+        int writes;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            writes++;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writes++;
+            out.write(b, off, len);
+        }
+    }
 }
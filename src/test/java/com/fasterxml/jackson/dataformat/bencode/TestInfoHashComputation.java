@@ -0,0 +1,121 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.dataformat.bencode.bittorrent.InfoHash;
+import com.fasterxml.jackson.dataformat.bencode.corpus.CorpusGenerator;
+import com.fasterxml.jackson.dataformat.bencode.util.ValueScanner;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestInfoHashComputation {
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    private static byte[] torrent(CorpusGenerator.Shape shape, long size) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CorpusGenerator(42).write(shape, size, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reference hash: the info value located with {@link ValueScanner}.
+     */
+    private static byte[] expected(byte[] torrent, String algorithm) throws Exception {
+        int start = new String(torrent, LATIN_1).indexOf("4:infod") + 6;
+        int end = ValueScanner.valueEnd(torrent, start, torrent.length);
+        return MessageDigest.getInstance(algorithm).digest(Arrays.copyOfRange(torrent, start, end));
+    }
+
+    /**
+     * Returns at most 7 bytes per read, so values are split across buffer refills.
+     */
+    private static InputStream trickle(byte[] data) {
+        final Random random = new Random(data.length);
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1 + random.nextInt(7)));
+            }
+        };
+    }
+
+    @Test
+    public void testSources() throws Exception {
+        for (CorpusGenerator.Shape shape : new CorpusGenerator.Shape[]{
+                CorpusGenerator.Shape.MULTI_FILE_TORRENT, CorpusGenerator.Shape.LARGE_PIECES}) {
+            byte[] torrent = torrent(shape, 300000);
+            InfoHash expected = InfoHash.valueOf(expected(torrent, "SHA-1"));
+
+            assertThat(BEncodeInfoHash.compute(new ByteArrayInputStream(torrent)), is(expected));
+            assertThat(BEncodeInfoHash.compute(trickle(torrent)), is(expected));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(torrent.length + 3);
+            direct.put(new byte[]{1, 2, 3}).put(torrent).flip();
+            direct.position(3);
+            assertThat(BEncodeInfoHash.compute(direct), is(expected));
+            assertThat(direct.position(), is(3));
+
+            File file = File.createTempFile("info-hash", ".torrent");
+            try {
+                Files.write(file.toPath(), torrent);
+                assertThat(BEncodeInfoHash.compute(file.toPath()), is(expected));
+            } finally {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testHybrid() throws Exception {
+        byte[] torrent = torrent(CorpusGenerator.Shape.LARGE_PIECES, 100000);
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        long length = BEncodeInfoHash.digest(trickle(torrent), sha1, sha256);
+        assertThat(sha1.digest(), is(expected(torrent, "SHA-1")));
+        assertThat(sha256.digest(), is(expected(torrent, "SHA-256")));
+        assertThat(length > 100000, is(true));
+
+        assertThat(BEncodeInfoHash.computeV2(ByteBuffer.wrap(torrent)).toByteArray(),
+                is(expected(torrent, "SHA-256")));
+    }
+
+    @Test
+    public void testStopsAfterInfo() throws Exception {
+        // trailing garbage after info is never looked at
+        byte[] torrent = "d4:infod4:name1:xe5:zzzzzi-e".getBytes(LATIN_1);
+        assertThat(BEncodeInfoHash.compute(ByteBuffer.wrap(torrent)),
+                is(InfoHash.valueOf(MessageDigest.getInstance("SHA-1").digest("d4:name1:xe".getBytes(LATIN_1)))));
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        for (String document : new String[]{
+                "d8:announce3:urle",
+                "d4:info3:abce",
+                "l4:infodee",
+                "d4:infod4:name1:x",
+                "d4:infod6:lengthi12x3ee",
+                "d5:other1x:4:infodee"}) {
+            try {
+                BEncodeInfoHash.compute(new ByteArrayInputStream(document.getBytes(LATIN_1)));
+                fail(document);
+            } catch (JsonParseException e) {
+                // expected
+            }
+        }
+    }
+}
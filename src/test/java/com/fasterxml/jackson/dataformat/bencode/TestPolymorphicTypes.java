@@ -0,0 +1,179 @@
+package com.fasterxml.jackson.dataformat.bencode;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.exc.InvalidTypeIdException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestPolymorphicTypes {
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "y")
+    @JsonSubTypes({
+            @JsonSubTypes.Type(value = Query.class, name = "q"),
+            @JsonSubTypes.Type(value = Response.class, name = "r")})
+    @SuppressWarnings("UnusedDeclaration")
+    public static abstract class Message {
+        public byte[] t;
+        public Message next;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class Query extends Message {
+        public String q;
+        public Map<String, byte[]> a;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class Response extends Message {
+        public Map<String, byte[]> r;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class Exchange {
+        public List<Message> messages;
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type", visible = true, defaultImpl = Plain.class)
+    @JsonSubTypes(@JsonSubTypes.Type(value = Scaled.class, name = "scaled"))
+    @SuppressWarnings("UnusedDeclaration")
+    public static class Plain {
+        public int size;
+        public String type;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class Scaled extends Plain {
+        public int factor;
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME)
+    @JsonSubTypes(@JsonSubTypes.Type(value = Circle.class, name = "circle"))
+    @SuppressWarnings("UnusedDeclaration")
+    public static abstract class Shape {
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class Circle extends Shape {
+        public int radius;
+    }
+
+    private final BEncodeMapper mapper = new BEncodeMapper();
+
+    private <T> T read(String encoded, Class<T> type) throws Exception {
+        return mapper.readValue(encoded.getBytes(LATIN_1), type);
+    }
+
+    @Test
+    public void testTypeIdLast() throws Exception {
+        Message message = read("d1:ad2:id4:ÿ\u0000\u0001\u0002e1:q4:ping1:t2:aa1:y1:qe", Message.class);
+        assertThat(message, instanceOf(Query.class));
+        Query query = (Query) message;
+        assertThat(query.q, is("ping"));
+        assertThat(query.t, is("aa".getBytes(LATIN_1)));
+        // not valid UTF-8, would be Base64 encoded text in a token buffer
+        assertThat(query.a.get("id"), is(new byte[]{(byte) 0xff, 0, 1, 2}));
+    }
+
+    @Test
+    public void testPairedIntrospector() throws Exception {
+        mapper.setAnnotationIntrospector(AnnotationIntrospector.pair(
+                mapper.getDeserializationConfig().getAnnotationIntrospector(), new JacksonAnnotationIntrospector()));
+        Message message = read("d1:ad2:id4:ÿ\u0000\u0001\u0002e1:q4:ping1:t2:aa1:y1:qe", Message.class);
+        assertThat(((Query) message).a.get("id"), is(new byte[]{(byte) 0xff, 0, 1, 2}));
+    }
+
+    @Test
+    public void testTypeIdFirst() throws Exception {
+        // "@type" sorts ahead of the properties, the dictionary is streamed
+        Shape shape = read("d5:@type6:circle6:radiusi2ee", Shape.class);
+        assertThat(shape, instanceOf(Circle.class));
+        assertThat(((Circle) shape).radius, is(2));
+    }
+
+    @Test
+    public void testNested() throws Exception {
+        Exchange exchange = read("d8:messagesl" +
+                "d1:q4:ping1:t2:aa1:y1:qe" +
+                "d1:rd2:id2:abe1:t2:aa1:y1:re" +
+                "ee", Exchange.class);
+        assertThat(exchange.messages.size(), is(2));
+        assertThat(exchange.messages.get(0), instanceOf(Query.class));
+        assertThat(exchange.messages.get(1), instanceOf(Response.class));
+    }
+
+    @Test
+    public void testNestedTypeIdLast() throws Exception {
+        String encoded = "d4:nextd4:nextd1:rd2:id2:abe1:t2:cc1:y1:re1:q4:ping1:t2:bb1:y1:qe1:q4:ping1:t2:aa1:y1:qe";
+        for (Message message : new Message[]{read(encoded, Message.class),
+                mapper.readValue(new ByteArrayInputStream(encoded.getBytes(LATIN_1)), Message.class)}) {
+            assertThat(message, instanceOf(Query.class));
+            assertThat(message.t, is("aa".getBytes(LATIN_1)));
+            assertThat(message.next, instanceOf(Query.class));
+            assertThat(message.next.t, is("bb".getBytes(LATIN_1)));
+            assertThat(message.next.next, instanceOf(Response.class));
+            assertThat(((Response) message.next.next).r.get("id"), is("ab".getBytes(LATIN_1)));
+        }
+    }
+
+    @Test
+    public void testErrorLocation() throws Exception {
+        // "q" follows "t" in the second message, which is bound from a copy
+        String encoded = "d8:messagesld1:t2:aa1:y1:qed1:t2:aa1:q4:ping1:y1:qeee";
+        try {
+            mapper.readValue(new ByteArrayInputStream(encoded.getBytes(LATIN_1)), Exchange.class);
+            fail();
+        } catch (JsonProcessingException e) {
+            assertThat(e.getLocation().getByteOffset(), is((long) encoded.indexOf("1:q4")));
+        }
+    }
+
+    @Test
+    public void testVisibleAndDefault() throws Exception {
+        Plain scaled = read("d6:factori3e4:sizei2e4:type6:scalede", Plain.class);
+        assertThat(scaled, instanceOf(Scaled.class));
+        assertThat(((Scaled) scaled).factor, is(3));
+        assertThat(scaled.size, is(2));
+        assertThat(scaled.type, is("scaled"));
+
+        Plain plain = read("d4:sizei2ee", Plain.class);
+        assertThat(plain.getClass() == Plain.class, is(true));
+        assertThat(plain.size, is(2));
+    }
+
+    @Test
+    public void testIllegalTypeIds() throws Exception {
+        try {
+            read("d1:t2:aa1:y1:xe", Message.class);
+            fail();
+        } catch (InvalidTypeIdException e) {
+            // expected
+        }
+        try {
+            read("d1:t2:aae", Message.class);
+            fail();
+        } catch (InvalidTypeIdException e) {
+            // expected
+        }
+        try {
+            read("d1:t2:aa1:ylee", Message.class);
+            fail();
+        } catch (JsonMappingException e) {
+            // expected
+        }
+    }
+}
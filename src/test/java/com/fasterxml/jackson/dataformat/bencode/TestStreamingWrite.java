@@ -1,13 +1,25 @@
 package com.fasterxml.jackson.dataformat.bencode;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.bencode.context.ByteBufferOutputContext;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -78,6 +90,7 @@ public class TestStreamingWrite {
         underTest.writeEndObject();
 
         underTest.writeEndObject();
+        underTest.flush();
 
         assertThat(out.toString("ISO-8859-1"), is("d5:lorem5:ipsum9:phasellus9:tincidunt5:vitaed4:egeti0eee"));
     }
@@ -131,6 +144,7 @@ public class TestStreamingWrite {
         underTest.writeStringField("field", "after array");
 
         underTest.writeEndObject();
+        underTest.flush();
 
         assertThat(out.toString("ISO-8859-1"), is("d3:asdl5:helloi3ee5:field11:after arraye"));
     }
@@ -142,6 +156,7 @@ public class TestStreamingWrite {
         underTest.writeNull();
         underTest.writeString("skip text".toCharArray(), 5, 4);
         underTest.writeEndArray();
+        underTest.flush();
 
         assertThat(out.toString("ISO-8859-1"), is(
                 "l31:" + new String("árvíztűrő tükörfúrógép".getBytes("UTF-8"), "ISO-8859-1") +
@@ -156,7 +171,308 @@ public class TestStreamingWrite {
         underTest.writeRaw("árvíztűrő tükörfúrógép");
         underTest.writeRaw("árvíztűrő tükörfúrógép", 10, 12);
         underTest.writeRaw('ű');
+        underTest.flush();
         assertThat(out.toByteArray(),
                 is("árvíztűrő tükörfúrógépárvíztűrő tükörfúrógéptükörfúrógépű".getBytes("UTF-8")));
     }
+
+    @Test
+    public void testByteBufferAndChannelTargets() throws Exception {
+        BEncodeGenerator toBuffer = bEncodeFactory.createGenerator(ByteBuffer.allocate(2));
+        writeTutorial(toBuffer);
+        ByteBuffer bb = ((ByteBufferOutputContext) toBuffer.getOutputTarget()).getByteBuffer();
+        bb.flip();
+        byte[] bytes = new byte[bb.remaining()];
+        bb.get(bytes);
+        assertThat(new String(bytes, "ISO-8859-1"), is(TestUtils.TUTORIAL_EXAMPLE_ENCODED));
+
+        writeTutorial(bEncodeFactory.createGenerator(Channels.newChannel(out)));
+        assertThat(out.toString("ISO-8859-1"), is(TestUtils.TUTORIAL_EXAMPLE_ENCODED));
+    }
+
+    @Test
+    public void testSortKeys() throws Exception {
+        underTest.enable(BEncodeGenerator.Feature.SORT_KEYS);
+        underTest.writeStartObject();
+        underTest.writeFieldName("verified");
+        underTest.writeBoolean(false);
+        underTest.writeBinaryField("userImage", TestUtils.BINARY_DATA);
+        underTest.writeObjectFieldStart("name");
+        underTest.writeStringField("last", "Sixpack");
+        underTest.writeStringField("first", "Joe");
+        underTest.writeEndObject();
+        underTest.writeStringField("gender", Gender.MALE.name());
+        underTest.writeEndObject();
+        underTest.flush();
+        assertThat(out.toString("ISO-8859-1"), is(TestUtils.TUTORIAL_EXAMPLE_ENCODED));
+
+        out.reset();
+        underTest.writeStartArray();
+        underTest.writeStartObject();
+        underTest.writeFieldName("b");
+        underTest.writeStartArray();
+        underTest.writeStartObject();
+        underTest.writeNumberField("z", 1);
+        underTest.writeNumberField("y", 2);
+        underTest.writeEndObject();
+        underTest.writeEndArray();
+        underTest.writeNumberField("ab", 3);
+        underTest.writeNumberField("a", 4);
+        underTest.writeFieldName("\u00e9");
+        underTest.writeNull();
+        underTest.writeEndObject();
+        underTest.writeStartObject();
+        underTest.writeNumberField("a", 1);
+        underTest.writeNumberField("b", 2);
+        underTest.writeEndObject();
+        underTest.writeEndArray();
+        underTest.flush();
+        assertThat(out.toString("ISO-8859-1"),
+                is("ld1:ai4e2:abi3e1:bld1:yi2e1:zi1eee2:\u00c3\u00a94:nulled1:ai1e1:bi2eee"));
+    }
+
+    @Test
+    public void testSortKeysDuplicates() throws Exception {
+        underTest.enable(BEncodeGenerator.Feature.SORT_KEYS);
+        underTest.writeStartObject();
+        try {
+            underTest.writeNumberField("a", 1);
+            underTest.writeNumberField("a", 2);
+            fail("shouldn't allow duplicate dictionary keys");
+        } catch (JsonProcessingException e) {
+            assertThat(e.getMessage(), is("duplicate dictionary key"));
+        }
+
+        underTest = bEncodeFactory.createGenerator(out);
+        underTest.enable(BEncodeGenerator.Feature.SORT_KEYS);
+        underTest.writeStartObject();
+        underTest.writeNumberField("b", 1);
+        underTest.writeNumberField("c", 2);
+        underTest.writeNumberField("b", 3);
+        try {
+            underTest.writeEndObject();
+            fail("shouldn't allow duplicate dictionary keys");
+        } catch (JsonProcessingException e) {
+            assertThat(e.getMessage(), is("duplicate dictionary key"));
+        }
+    }
+
+    @Test
+    public void testSerializedFieldNames() throws Exception {
+        underTest.writeStartObject();
+        underTest.writeFieldName(new BEncodeSerializedString("gender"));
+        underTest.writeString(Gender.MALE.name());
+        underTest.writeFieldName(new SerializedString("name"));
+        underTest.writeStartObject();
+        underTest.writeFieldName(new BEncodeSerializedString("first"));
+        underTest.writeString("Joe");
+        underTest.writeStringField("last", "Sixpack");
+        underTest.writeEndObject();
+        underTest.writeFieldName(new BEncodeSerializedString("userImage"));
+        underTest.writeBinary(TestUtils.BINARY_DATA);
+        try {
+            underTest.writeFieldName(new BEncodeSerializedString("name"));
+            fail("should throw exception");
+        } catch (JsonProcessingException e) {
+            assertThat(e.getMessage(), is("keys must be in lexicographically ascending order"));
+        }
+        try {
+            underTest.writeFieldName(new BEncodeSerializedString("userImage"));
+            fail("shouldn't allow duplicate dictionary keys");
+        } catch (JsonProcessingException e) {
+            assertThat(e.getMessage(), is("duplicate dictionary key"));
+        }
+        underTest.writeFieldName(new BEncodeSerializedString("verified"));
+        underTest.writeBoolean(false);
+        underTest.writeEndObject();
+        underTest.flush();
+
+        assertThat(out.toString("ISO-8859-1"), is(TestUtils.TUTORIAL_EXAMPLE_ENCODED));
+    }
+
+    @Test
+    public void testWriteBinaryStream() throws Exception {
+        byte[] data = new byte[BEncodeGenerator.SPOOL_MEMORY_LIMIT + 50000];
+        new Random(42).nextBytes(data);
+
+        underTest.writeStartArray();
+        assertThat(underTest.writeBinary(new ByteArrayInputStream(data), 60000), is(60000));
+        assertThat(underTest.writeBinary(new ByteArrayInputStream(data), -1), is(data.length));
+        assertThat(underTest.writeBinary(new ByteArrayInputStream(data, 0, 3), -1), is(3));
+        underTest.writeEndArray();
+        underTest.flush();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write("l60000:".getBytes("ISO-8859-1"));
+        expected.write(data, 0, 60000);
+        expected.write((data.length + ":").getBytes("ISO-8859-1"));
+        expected.write(data);
+        expected.write("3:".getBytes("ISO-8859-1"));
+        expected.write(data, 0, 3);
+        expected.write('e');
+        assertThat(out.toByteArray(), is(expected.toByteArray()));
+
+        try {
+            underTest.writeBinary(new ByteArrayInputStream(data, 0, 10), 20);
+            fail("should detect truncated input");
+        } catch (JsonProcessingException e) {
+            assertThat(e.getMessage(), is("Too few bytes available: missing 10 bytes (out of 20)"));
+        }
+    }
+
+    @Test
+    public void testCopyStructureVerbatim() throws Exception {
+        byte[] torrent = TestUtils.readFileBinary("/GET-STARTED.torrent");
+        JsonParser p = bEncodeFactory.createParser(torrent);
+        p.nextToken();
+        underTest.copyCurrentStructure(p);
+        underTest.flush();
+        assertThat(out.toByteArray(), is(torrent));
+        assertThat(p.nextToken(), nullValue());
+    }
+
+    @Test
+    public void testCopyEventsRewritingField() throws Exception {
+        byte[] torrent = TestUtils.readFileBinary("/GET-STARTED.torrent");
+        JsonParser p = bEncodeFactory.createParser(torrent);
+        p.nextToken();
+        underTest.copyCurrentEvent(p);
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            underTest.copyCurrentEvent(p);
+            p.nextToken();
+            if ("comment".equals(p.getCurrentName())) {
+                p.getText();
+                underTest.writeString("rewritten");
+            } else {
+                underTest.copyCurrentStructure(p);
+            }
+        }
+        underTest.copyCurrentEvent(p);
+        underTest.flush();
+
+        String original = new String(torrent, "ISO-8859-1");
+        assertThat(out.toString("ISO-8859-1"),
+                is(original.replace("7:comment27:Official BitTorrent Content", "7:comment9:rewritten")));
+    }
+
+    @Test
+    public void testCopyBinaryKeysAndValues() throws Exception {
+        byte[] binary = {'d', '2', ':', (byte) 0xff, (byte) 0xfe, '2', ':', (byte) 0xc3, (byte) 0x28, 'e'};
+        JsonParser p = bEncodeFactory.createParser(binary);
+        while (p.nextToken() != null) {
+            underTest.copyCurrentEvent(p);
+        }
+        underTest.flush();
+        assertThat(out.toByteArray(), is(binary));
+    }
+
+    @Test
+    public void testWriteRawValue() throws Exception {
+        underTest.writeStartObject();
+        underTest.writeFieldName("a");
+        underTest.writeRawValue("d1:xli-1e0:ee".getBytes("ISO-8859-1"));
+        underTest.writeFieldName("b");
+        underTest.writeRawValue("i42e".getBytes("ISO-8859-1"));
+        underTest.writeEndObject();
+        underTest.flush();
+        assertThat(out.toString("ISO-8859-1"), is("d1:ad1:xli-1e0:ee1:bi42ee"));
+
+        for (String invalid : new String[]{"d1:xe", "di1ei2ee", "l4:spam", "i42ei1e", "ie", "5:spam", "e", "x"}) {
+            try {
+                underTest.writeRawValue(invalid.getBytes("ISO-8859-1"));
+                fail("should reject " + invalid);
+            } catch (JsonProcessingException e) {
+                assertThat(e.getMessage(), startsWith("invalid raw value"));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteNonAsciiStrings() throws Exception {
+        char[] chars = "x\u00e9\u20ac\ud83d\ude00x".toCharArray();
+        underTest.writeStartArray();
+        underTest.writeString("gr\u00fc\u00dfe");
+        underTest.writeString(chars, 1, 4);
+        underTest.writeEndArray();
+        underTest.flush();
+        assertThat(out.toString("UTF-8"), is("l7:gr\u00fc\u00dfe9:\u00e9\u20ac\ud83d\ude00e"));
+    }
+
+    @Test
+    public void testFeatureMasks() throws Exception {
+        assertThat(underTest.isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM), is(true));
+        underTest.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        assertThat(underTest.isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM), is(false));
+        assertThat(underTest.getFeatureMask() & JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM.getMask(), is(0));
+        underTest.enable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        assertThat(underTest.isEnabled(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM), is(true));
+
+        assertThat(underTest.isEnabled(BEncodeGenerator.Feature.VALIDATE_STRUCTURE), is(true));
+        assertThat(underTest.version(), is(PackageVersion.VERSION));
+    }
+
+    @Test
+    public void testTargetFeatures() throws Exception {
+        final int[] flushes = new int[1];
+        final boolean[] closed = new boolean[1];
+        ByteArrayOutputStream target = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        BEncodeGenerator generator = bEncodeFactory.createGenerator(target);
+        generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeNumber(1);
+        generator.flush();
+        assertThat(target.toString("ISO-8859-1"), is("i1e"));
+        assertThat(flushes[0], is(0));
+        generator.close();
+        assertThat(generator.isClosed(), is(true));
+        assertThat(closed[0], is(false));
+
+        new BEncodeMapper().disable(SerializationFeature.CLOSE_CLOSEABLE)
+                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false).writeValue(target, "x");
+        assertThat(target.toString("ISO-8859-1"), is("i1e1:x"));
+        assertThat(closed[0], is(false));
+
+        generator = bEncodeFactory.createGenerator(target);
+        generator.writeNumber(2);
+        generator.flush();
+        assertThat(flushes[0], is(1));
+        generator.close();
+        assertThat(closed[0], is(true));
+    }
+
+    @Test
+    public void testWithoutValidation() throws Exception {
+        underTest.disable(BEncodeGenerator.Feature.VALIDATE_STRUCTURE);
+        underTest.writeStartObject();
+        underTest.writeFieldName("b");
+        underTest.writeNumber(1);
+        underTest.writeFieldName("a");
+        underTest.writeRawValue("x".getBytes("ISO-8859-1"));
+        underTest.writeEndObject();
+        underTest.flush();
+        assertThat(out.toString("ISO-8859-1"), is("d1:bi1e1:axe"));
+    }
+
+    private static void writeTutorial(BEncodeGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("gender", Gender.MALE.name());
+        generator.writeObjectFieldStart("name");
+        generator.writeStringField("first", "Joe");
+        generator.writeStringField("last", "Sixpack");
+        generator.writeEndObject();
+        generator.writeBinaryField("userImage", TestUtils.BINARY_DATA);
+        generator.writeBooleanField("verified", false);
+        generator.writeEndObject();
+        generator.close();
+    }
 }
@@ -0,0 +1,145 @@
+package com.fasterxml.jackson.dataformat.bencode.bittorrent;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeFactory;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class CompactPeersTest {
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class TrackerResponse {
+        public int interval;
+        public CompactPeers peers;
+        public CompactPeers peers6;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class ExplicitResponse {
+        @JsonDeserialize(using = CompactPeers.Ipv6Deserializer.class)
+        public CompactPeers nodes;
+    }
+
+    private static CompactPeers ipv4Peers(int count) {
+        CompactPeers peers = new CompactPeers(false);
+        for (int i = 0; i < count; i++) {
+            peers.add(0x0a000000 | i, 6881 + i % 1000);
+        }
+        return peers;
+    }
+
+    private static CompactPeers ipv6Peers(int count) {
+        CompactPeers peers = new CompactPeers(true);
+        for (int i = 0; i < count; i++) {
+            peers.add(0x20010db800000000L, 0x8000000000000000L | i, 65535 - i % 1000);
+        }
+        return peers;
+    }
+
+    @Test
+    public void testAccessors() throws Exception {
+        CompactPeers peers = new CompactPeers(false);
+        peers.add(new InetSocketAddress("192.168.1.2", 51413));
+        assertThat(peers.getAddress(0), is(0xc0a80102));
+        assertThat(peers.getPort(0), is(51413));
+        assertThat(peers.toSocketAddress(0), is(new InetSocketAddress("192.168.1.2", 51413)));
+        assertThat(peers.toByteArray(), is(new byte[]{(byte) 192, (byte) 168, 1, 2, (byte) 0xc8, (byte) 0xd5}));
+
+        CompactPeers peers6 = new CompactPeers(true);
+        peers6.add(new InetSocketAddress("2001:db8::1", 6881));
+        assertThat(peers6.getAddressHigh(0), is(0x20010db800000000L));
+        assertThat(peers6.getAddressLow(0), is(1L));
+        assertThat(peers6.toString(), is("CompactPeers[[2001:db8:0:0:0:0:0:1]:6881]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFamilyMismatch() throws Exception {
+        new CompactPeers(false).add(new InetSocketAddress("2001:db8::1", 6881));
+    }
+
+    @Test
+    public void testBindByPropertyName() throws Exception {
+        ObjectMapper mapper = new BEncodeMapper();
+        TrackerResponse response = new TrackerResponse();
+        response.interval = 1800;
+        response.peers = ipv4Peers(3);
+        response.peers6 = ipv6Peers(1);
+
+        byte[] encoded = mapper.writeValueAsBytes(response);
+        assertThat(new String(encoded, LATIN_1), is("d8:intervali1800e5:peers18:" +
+                new String(response.peers.toByteArray(), LATIN_1) + "6:peers618:" +
+                new String(response.peers6.toByteArray(), LATIN_1) + "e"));
+
+        // 18 bytes in both: the property name tells the formats apart
+        TrackerResponse read = mapper.readValue(encoded, TrackerResponse.class);
+        assertThat(read.peers.isIPv6(), is(false));
+        assertThat(read.peers, is(response.peers));
+        assertThat(read.peers6.isIPv6(), is(true));
+        assertThat(read.peers6, is(response.peers6));
+
+        ExplicitResponse explicit = mapper.readValue("d5:nodes18:0123456789abcdefghe".getBytes(LATIN_1),
+                ExplicitResponse.class);
+        assertThat(explicit.nodes.isIPv6(), is(true));
+        assertThat(explicit.nodes.getPort(0), is(('g' << 8) | 'h'));
+    }
+
+    @Test
+    public void testLargeListsSpanningReadChunks() throws Exception {
+        ObjectMapper mapper = new BEncodeMapper();
+        TrackerResponse response = new TrackerResponse();
+        response.peers = ipv4Peers(5000);
+        response.peers6 = ipv6Peers(3000);
+        TrackerResponse read = mapper.readValue(mapper.writeValueAsBytes(response), TrackerResponse.class);
+        assertThat(read.peers, is(response.peers));
+        assertThat(read.peers6, is(response.peers6));
+        assertThat(read.peers6.toByteArray(), is(response.peers6.toByteArray()));
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        TrackerResponse response = new TrackerResponse();
+        response.peers = ipv4Peers(10);
+        response.peers6 = ipv6Peers(10);
+        TrackerResponse read = mapper.readValue(mapper.writeValueAsBytes(response), TrackerResponse.class);
+        assertThat(read.peers, is(response.peers));
+        assertThat(read.peers6, is(response.peers6));
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        byte[] first = ipv4Peers(200).toByteArray();
+        byte[] second = ipv4Peers(100).toByteArray();
+        BEncodeFactory factory = new BEncodeFactory();
+        CompactPeers peers = new CompactPeers(false, 200);
+        for (byte[] data : new byte[][]{first, second}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write((data.length + ":").getBytes(LATIN_1));
+            out.write(data);
+            try (JsonParser p = factory.createParser(out.toByteArray())) {
+                assertThat(p.nextToken(), is(JsonToken.VALUE_STRING));
+                peers.clear();
+                peers.read(p);
+                assertThat(p.nextToken(), is((JsonToken) null));
+            }
+            assertThat(peers.toByteArray(), is(data));
+        }
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void testTruncatedEntry() throws Exception {
+        new BEncodeMapper().readValue("d5:peers7:1234567e".getBytes(LATIN_1), TrackerResponse.class);
+    }
+}
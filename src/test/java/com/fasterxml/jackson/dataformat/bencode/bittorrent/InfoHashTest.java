@@ -0,0 +1,173 @@
+package com.fasterxml.jackson.dataformat.bencode.bittorrent;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeGenerator;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeMapper;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeModule;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeParser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class InfoHashTest {
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class Stats {
+        public int complete;
+        public int downloaded;
+        public int incomplete;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class ScrapeResponse {
+        public Map<InfoHash, Stats> files;
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class SortedScrapeResponse {
+        public SortedMap<InfoHash, Stats> files;
+    }
+
+    private static byte[] hash(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (seed * 31 + i * 97);
+        }
+        return bytes;
+    }
+
+    /**
+     * Scrape response with the given keys, which must be in order.
+     */
+    private static byte[] scrape(byte[]... keys) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("d5:filesd".getBytes(LATIN_1));
+        for (byte[] key : keys) {
+            out.write((key.length + ":").getBytes(LATIN_1));
+            out.write(key);
+            out.write("d8:completei5e10:downloadedi50e10:incompletei10ee".getBytes(LATIN_1));
+        }
+        out.write("ee".getBytes(LATIN_1));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testAccessors() throws Exception {
+        byte[] bytes = hash(20, 1);
+        InfoHash hash = InfoHash.valueOf(bytes);
+        assertThat(hash.length(), is(20));
+        assertThat(hash.isSha256(), is(false));
+        assertThat(hash.toByteArray(), is(bytes));
+        assertThat(hash.get(19), is(bytes[19] & 0xff));
+        assertThat(InfoHash.fromHex(hash.toHex()), is(hash));
+        assertThat(InfoHash.fromHex(hash.toHex().toUpperCase()), is(hash));
+        assertThat(hash.toHex().length(), is(40));
+
+        InfoHash v2 = InfoHash.valueOf(hash(40, 2), 8, 32);
+        assertThat(v2.isSha256(), is(true));
+        assertThat(v2.toByteArray(), is(Arrays.copyOfRange(hash(40, 2), 8, 40)));
+        assertThat(InfoHash.fromHex(v2.toHex()), is(v2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLengthChecked() {
+        InfoHash.valueOf(new byte[16]);
+    }
+
+    @Test
+    public void testOrderedAsBytes() {
+        byte[] low = new byte[20];
+        byte[] high = new byte[20];
+        high[0] = (byte) 0x80;
+        low[0] = 0x7f;
+        assertThat(InfoHash.valueOf(low).compareTo(InfoHash.valueOf(high)) < 0, is(true));
+
+        // a SHA-1 hash which is a prefix of a SHA-256 hash sorts first, as byte strings do
+        byte[] v2 = new byte[32];
+        System.arraycopy(low, 0, v2, 0, 20);
+        assertThat(InfoHash.valueOf(low).compareTo(InfoHash.valueOf(v2)) < 0, is(true));
+        v2[31] = 1;
+        assertThat(InfoHash.valueOf(low).compareTo(InfoHash.valueOf(v2)) < 0, is(true));
+        assertThat(InfoHash.valueOf(high).compareTo(InfoHash.valueOf(v2)) > 0, is(true));
+    }
+
+    @Test
+    public void testBindBinaryKeys() throws Exception {
+        // the third key is not valid UTF-8, the second is by chance; neither is decoded
+        byte[] first = hash(20, 0);
+        first[0] = 0x41;
+        byte[] second = "aaaaaaaaaaaaaaaaaaaa".getBytes(LATIN_1);
+        byte[] third = hash(20, 3);
+        third[0] = (byte) 0xff;
+        byte[] encoded = scrape(first, second, third);
+
+        BEncodeMapper mapper = new BEncodeMapper();
+        ScrapeResponse response = mapper.readValue(encoded, ScrapeResponse.class);
+        List<InfoHash> keys = new ArrayList<InfoHash>(response.files.keySet());
+        assertThat(keys, is(Arrays.asList(InfoHash.valueOf(first), InfoHash.valueOf(second), InfoHash.valueOf(third))));
+        assertThat(response.files.get(InfoHash.valueOf(third)).downloaded, is(50));
+
+        assertThat(mapper.writeValueAsBytes(response), is(encoded));
+        assertThat(mapper.readValue(encoded, SortedScrapeResponse.class).files.firstKey(), is(InfoHash.valueOf(first)));
+    }
+
+    @Test
+    public void testKeysSortedOnWrite() throws Exception {
+        Map<InfoHash, Integer> files = new TreeMap<InfoHash, Integer>();
+        byte[] high = hash(20, 4);
+        high[0] = (byte) 0xf0;
+        byte[] low = hash(20, 5);
+        low[0] = 0x10;
+        files.put(InfoHash.valueOf(high), 2);
+        files.put(InfoHash.valueOf(low), 1);
+
+        byte[] encoded = new BEncodeMapper().writeValueAsBytes(files);
+        BEncodeParser p = (BEncodeParser) new BEncodeMapper().getFactory().createParser(encoded);
+        assertThat(p.nextToken(), is(JsonToken.START_OBJECT));
+        assertThat(p.nextToken(), is(JsonToken.FIELD_NAME));
+        assertThat(p.getCurrentNameBytes(), is(low));
+        p.nextToken();
+        assertThat(p.nextToken(), is(JsonToken.FIELD_NAME));
+        assertThat(p.getCurrentNameBytes(), is(high));
+    }
+
+    @Test
+    public void testRawKeyWrite() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BEncodeGenerator gen = new BEncodeMapper().getFactory().createGenerator(out);
+        byte[] key = new byte[]{'x', (byte) 0x80, (byte) 0xff, 'y'};
+        gen.writeStartObject();
+        gen.writeFieldName(key, 1, 2);
+        gen.writeNumber(1);
+        gen.writeEndObject();
+        gen.close();
+        assertThat(out.toByteArray(), is(new byte[]{'d', '2', ':', (byte) 0x80, (byte) 0xff, 'i', '1', 'e', 'e'}));
+    }
+
+    @Test
+    public void testJsonUsesHexKeys() throws Exception {
+        ObjectMapper json = new ObjectMapper().registerModule(new BEncodeModule());
+        ScrapeResponse response = new BEncodeMapper().readValue(scrape(hash(20, 6)), ScrapeResponse.class);
+        String text = json.writeValueAsString(response);
+        assertThat(text.contains(InfoHash.valueOf(hash(20, 6)).toHex()), is(true));
+        assertThat(json.readValue(text, ScrapeResponse.class).files.keySet(), is(response.files.keySet()));
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void testWrongKeyLength() throws Exception {
+        new BEncodeMapper().readValue(scrape(new byte[]{1, 2, 3}), ScrapeResponse.class);
+    }
+}
@@ -0,0 +1,116 @@
+package com.fasterxml.jackson.dataformat.bencode.codegen;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeMapper;
+import com.fasterxml.jackson.dataformat.bencode.types.Announce;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.fasterxml.jackson.dataformat.bencode.types.Announce_BEncodeCodec;
+import com.fasterxml.jackson.dataformat.bencode.types.Announce_Error_BEncodeCodec;
+import com.fasterxml.jackson.dataformat.bencode.types.Announce_Extended_BEncodeCodec;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TestGeneratedCodec {
+    private ObjectMapper generated;
+    private ObjectMapper reflective;
+
+    @Before
+    public void startUp() {
+        generated = new BEncodeMapper().registerModule(new BEncodeCodegenModule());
+        reflective = new BEncodeMapper();
+    }
+
+    private static Announce announce() {
+        Announce a = new Announce();
+        a.interval = 1800;
+        a.minInterval = 900;
+        a.trackerId = "tracker";
+        a.complete = 12;
+        a.incomplete = 3;
+        a.compact = true;
+        a.peers = new byte[]{10, 0, 0, 1, 0x1a, (byte) 0xe1};
+        a.warnings = Arrays.asList("slow down", "again");
+        a.ignored = "not written";
+        return a;
+    }
+
+    @Test
+    public void testGeneratedCodecIsUsed() throws Exception {
+        assertThat(generated.getSerializerProviderInstance().findValueSerializer(Announce.class),
+                sameInstance((Object) Announce_BEncodeCodec.SERIALIZER));
+        assertThat(BEncodeCodegenModule.lookup(Announce.Error.class, "DESERIALIZER"),
+                sameInstance((Object) Announce_Error_BEncodeCodec.DESERIALIZER));
+        assertThat(BEncodeCodegenModule.lookup(String.class, "SERIALIZER"), nullValue());
+    }
+
+    @Test
+    public void testWriteMatchesReflection() throws Exception {
+        Announce a = announce();
+        assertThat(generated.writeValueAsBytes(a), is(reflective.writeValueAsBytes(a)));
+        a.trackerId = null;
+        a.warnings = null;
+        assertThat(new String(generated.writeValueAsBytes(a), "ISO-8859-1"),
+                is("d7:compact4:true8:completei12e10:incompletei3e8:intervali1800e12:min intervali900e" +
+                        "5:peers6:\n\u0000\u0000\u0001\u001aáe"));
+
+        Announce.Error e = new Announce.Error();
+        e.failureReason = "unregistered";
+        assertThat(new String(generated.writeValueAsBytes(e), "ISO-8859-1"), is("d14:failure reason12:unregisterede"));
+    }
+
+    @Test
+    public void testInheritedProperties() throws Exception {
+        Announce.Extended a = new Announce.Extended();
+        a.interval = 60;
+        a.complete = 1;
+        a.externalIp = new byte[]{10, 0, 0, 2};
+        byte[] encoded = generated.writeValueAsBytes(a);
+        assertThat(BEncodeCodegenModule.lookup(Announce.Extended.class, "SERIALIZER"),
+                sameInstance((Object) Announce_Extended_BEncodeCodec.SERIALIZER));
+        assertThat(encoded, is(reflective.writeValueAsBytes(a)));
+
+        Announce.Extended read = generated.readValue(encoded, Announce.Extended.class);
+        assertThat(read.interval, is(60L));
+        assertThat(read.complete, is(1));
+        assertThat(read.externalIp, is(a.externalIp));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] encoded = reflective.writeValueAsBytes(announce());
+        Announce read = generated.readValue(encoded, Announce.class);
+        assertThat(read.interval, is(1800L));
+        assertThat(read.minInterval, is(900));
+        assertThat(read.trackerId, is("tracker"));
+        assertThat(read.complete, is(12));
+        assertThat(read.incomplete, is(3));
+        assertThat(read.compact, is(true));
+        assertThat(read.peers, is(announce().peers));
+        assertThat(read.warnings, is(Arrays.asList("slow down", "again")));
+        assertThat(read.ignored, nullValue());
+        assertThat(generated.writeValueAsBytes(read), is(encoded));
+    }
+
+    @Test
+    public void testUnknownKeysSkipped() throws Exception {
+        Announce read = generated
+                .readerFor(Announce.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue("d8:completei7e5:extrald1:xi1eee8:intervali60ee".getBytes("ISO-8859-1"));
+        assertThat(read.interval, is(60L));
+        assertThat(read.complete, is(7));
+    }
+
+    @Test(expected = UnrecognizedPropertyException.class)
+    public void testUnknownKeyFails() throws Exception {
+        generated.readValue("d5:extrai1ee".getBytes("ISO-8859-1"), Announce.class);
+    }
+}
@@ -0,0 +1,103 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import com.fasterxml.jackson.core.JsonStreamContext;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class BContextStackTest {
+    @Test
+    public void testViews() throws Exception {
+        BContextStack stack = new BContextStack();
+        stack.valueNext();
+        stack.pushList();
+        stack.valueNext();
+        stack.valueNext();
+        stack.pushDictionary();
+        stack.keyNext("a".getBytes("UTF-8"), 0, 1);
+
+        JsonStreamContext dictionary = stack.getContext();
+        assertThat(dictionary.inObject(), is(true));
+        assertThat(dictionary.getCurrentName(), is("a"));
+        assertThat(dictionary.getCurrentIndex(), is(0));
+        assertThat(dictionary.getParent().inArray(), is(true));
+        assertThat(dictionary.getParent().getCurrentIndex(), is(1));
+        assertThat(dictionary.getParent().getParent().inRoot(), is(true));
+        assertThat(dictionary.getParent().getParent().getParent(), nullValue());
+
+        stack.valueNext();
+        stack.keyNext("b");
+        assertThat(dictionary.getCurrentName(), is("b"));
+        assertThat(dictionary.getCurrentIndex(), is(1));
+
+        stack.valueNext();
+        stack.pop();
+        stack.pushList();
+        assertThat(stack.getContext(), sameInstance(dictionary));
+        assertThat(dictionary.inArray(), is(true));
+    }
+
+    @Test
+    public void testDeepNesting() throws Exception {
+        BContextStack stack = new BContextStack();
+        for (int i = 0; i < 100; i++) {
+            stack.valueNext();
+            stack.pushDictionary();
+            stack.keyNext("k");
+        }
+        assertThat(stack.getCurrentName(), is("k"));
+        stack.valueNext();
+        for (int i = 0; i < 100; i++) {
+            stack.pop();
+        }
+        assertThat(stack.inRoot(), is(true));
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        BContextStack stack = new BContextStack();
+        expectError(stack, "trying to access parent of root");
+        stack.pushDictionary();
+        stack.keyNext("b");
+        expectError(stack, "uneven dictionary contents");
+        stack.valueNext();
+        try {
+            stack.valueNext();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("unexpected value"));
+        }
+        expectKeyError(stack, "b", "duplicate dictionary key");
+        expectKeyError(stack, "a", "keys must be in lexicographically ascending order");
+        stack.keyNext("c");
+        expectKeyError(stack, "d", "unexpected key");
+        stack.valueNext();
+        stack.pop();
+        stack.pushList();
+        expectKeyError(stack, "a", "not in dictionary");
+    }
+
+    private static void expectError(BContextStack stack, String message) {
+        try {
+            stack.pop();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is(message));
+        }
+    }
+
+    private static void expectKeyError(BContextStack stack, String key, String message) {
+        try {
+            stack.keyNext(key);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is(message));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ByteBufferOutputContextTest {
+    public static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    @Test
+    public void testWriteInPlace() throws Exception {
+        ByteBuffer target = ByteBuffer.allocate(32);
+        target.put((byte) 'x');
+        ByteBufferOutputContext o = new ByteBufferOutputContext(target, LATIN_1);
+        o.write((byte) 'i');
+        o.write(-42);
+        o.write((byte) 'e');
+
+        assertThat(o.getByteBuffer(), sameInstance(target));
+        assertThat(content(o.getByteBuffer()), is("xi-42e"));
+    }
+
+    @Test
+    public void testGrowHeapBuffer() throws Exception {
+        ByteBuffer target = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBufferOutputContext o = new ByteBufferOutputContext(target, LATIN_1);
+        o.write("12:");
+        o.write(Long.MAX_VALUE);
+        o.write(new byte[20000]);
+        o.write("e");
+
+        ByteBuffer result = o.getByteBuffer();
+        assertThat(result, not(sameInstance(target)));
+        assertThat(result.isDirect(), is(false));
+        assertThat(result.order(), is(ByteOrder.LITTLE_ENDIAN));
+        assertThat(result.position(), is(3 + 19 + 20000 + 1));
+        assertThat(content(result).substring(0, 22), is("12:9223372036854775807"));
+    }
+
+    @Test
+    public void testGrowDirectBuffer() throws Exception {
+        ByteBuffer target = ByteBuffer.allocateDirect(8);
+        ByteBufferOutputContext o = new ByteBufferOutputContext(target, LATIN_1);
+        o.write("4:spam");
+        o.write(1234567890);
+        o.write(new byte[10000], 0, 9000);
+        o.close();
+
+        ByteBuffer result = o.getByteBuffer();
+        assertThat(result.isDirect(), is(true));
+        assertThat(result.position(), is(6 + 10 + 9000));
+        assertThat(content(result).substring(0, 16), is("4:spam1234567890"));
+    }
+
+    private static String content(ByteBuffer bb) {
+        ByteBuffer copy = bb.duplicate();
+        copy.flip();
+        byte[] bytes = new byte[copy.remaining()];
+        copy.get(bytes);
+        return new String(bytes, LATIN_1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.Charset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ChannelOutputContextTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testWrite() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ChannelOutputContext o = new ChannelOutputContext(Channels.newChannel(bos), UTF_8);
+        o.write(42);
+        o.close();
+        assertThat(bos.toString("ISO-8859-1"), is("42"));
+    }
+
+    @Test
+    public void testNonBlockingChannelRejected() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            try {
+                new ChannelOutputContext(pipe.sink(), UTF_8);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+}
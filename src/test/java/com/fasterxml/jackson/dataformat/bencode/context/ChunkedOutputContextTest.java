@@ -0,0 +1,134 @@
+package com.fasterxml.jackson.dataformat.bencode.context;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ChunkedOutputContextTest {
+    public static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    @Test
+    public void testChunksFollowDemand() throws Exception {
+        final CollectingSubscriber subscriber = new CollectingSubscriber();
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ChunkedOutputContext o = new ChunkedOutputContext(subscriber, 30, LATIN_1);
+                    for (int i = 0; i < 10; i++) {
+                        o.write("0123456789");
+                    }
+                    o.close();
+                } catch (IOException e) {
+                    subscriber.events.add(e);
+                }
+            }
+        });
+        producer.start();
+
+        // nothing is emitted without demand
+        assertThat(subscriber.events.poll(100, TimeUnit.MILLISECONDS), nullValue());
+        assertThat(producer.isAlive(), is(true));
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int chunks = 0;
+        Object event;
+        do {
+            subscriber.subscription.request(1);
+            event = subscriber.events.poll(5, TimeUnit.SECONDS);
+            if (event instanceof ByteBuffer) {
+                ByteBuffer chunk = (ByteBuffer) event;
+                assertThat(chunk.remaining() <= 30, is(true));
+                received.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+                chunks++;
+            }
+        } while (event instanceof ByteBuffer);
+
+        assertThat(event, is((Object) "complete"));
+        assertThat(chunks, is(4));
+        assertThat(received.size(), is(100));
+        producer.join();
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        ChunkedOutputContext o = new ChunkedOutputContext(subscriber, 20, LATIN_1);
+        subscriber.subscription.request(1);
+        o.write(new byte[20]);
+        o.write(new byte[20]);
+        subscriber.subscription.cancel();
+        try {
+            o.write(new byte[20]);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("subscription cancelled"));
+        }
+    }
+
+    @Test
+    public void testNoSignalsAfterCancel() throws Exception {
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        ChunkedOutputContext o = new ChunkedOutputContext(subscriber, 20, LATIN_1);
+        o.write(new byte[10]);
+        subscriber.subscription.cancel();
+        o.flush();
+        o.close();
+        o.fail(new IOException("late"));
+        assertThat(subscriber.events.poll(), nullValue());
+    }
+
+    @Test
+    public void testNonPositiveDemand() throws Exception {
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        ChunkedOutputContext o = new ChunkedOutputContext(subscriber, 20, LATIN_1);
+        subscriber.subscription.request(1);
+        subscriber.subscription.request(0);
+        o.write(new byte[20]);
+        try {
+            o.write(new byte[20]);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getCause() instanceof IllegalArgumentException, is(true));
+        }
+        o.close();
+        assertThat(subscriber.events.poll() instanceof IllegalArgumentException, is(true));
+        assertThat(subscriber.events.poll(), nullValue());
+    }
+
+    static class CollectingSubscriber implements ChunkedOutputContext.Subscriber {
+        final BlockingQueue<Object> events = new LinkedBlockingQueue<Object>();
+        volatile ChunkedOutputContext.Subscription subscription;
+
+        @Override
+        public void onSubscribe(ChunkedOutputContext.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer chunk) {
+            events.add(chunk);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            events.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            events.add("complete");
+        }
+    }
+}
@@ -126,6 +126,12 @@ public class NumberContextTest {
                 is(new BigInteger("45678951506897056489087656679877941321034809041089384467986411")));
     }
 
+    @Test
+    public void testParseNegativeBigInteger() throws Exception {
+        NumberContext numberContext = createNumberContext("-9223372036854775809", true);
+        assertThat(numberContext.parseBigInteger(), is(new BigInteger("-9223372036854775809")));
+    }
+
     NumberContext createNumberContext(String input, boolean guess) throws Exception {
         NumberContext numberContext = new NumberContext(
                 new StreamInputContext(
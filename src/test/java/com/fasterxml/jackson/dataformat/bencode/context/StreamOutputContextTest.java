@@ -1,5 +1,6 @@
 package com.fasterxml.jackson.dataformat.bencode.context;
 
+import com.fasterxml.jackson.dataformat.bencode.util.Utf8;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
@@ -17,6 +18,7 @@ public class StreamOutputContextTest {
         StreamOutputContext o = new StreamOutputContext(bos, Charset.forName("UTF-8"));
 
         o.write(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1));
+        o.flush();
         assertThat(bos.toByteArray(), is("18446744073709551614".getBytes("ISO-8859-1")));
 
         final int reps = 500;
@@ -41,4 +43,49 @@ public class StreamOutputContextTest {
         System.out.println(String.format("longlike: %d", longLikeTime));
         System.out.println(String.format("stringie: %d", stringieTime));
     }
+
+    @Test
+    public void testWriteIntsInPlace() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        StreamOutputContext o = new StreamOutputContext(bos, Charset.forName("UTF-8"));
+
+        o.write(0);
+        o.write((byte) ' ');
+        o.write(-7);
+        o.write((byte) ' ');
+        o.write(Integer.MIN_VALUE);
+        o.write((byte) ' ');
+        o.write(Integer.MAX_VALUE);
+        o.write((byte) ' ');
+        o.write(Long.MIN_VALUE);
+        o.write((byte) ' ');
+        o.write(Long.MAX_VALUE);
+        o.write((byte) ' ');
+        o.write(BigInteger.valueOf(-1234567890123L));
+        assertThat(bos.size(), is(0));
+
+        o.flush();
+        assertThat(bos.toString("ISO-8859-1"), is("0 -7 -2147483648 2147483647 " +
+                "-9223372036854775808 9223372036854775807 -1234567890123"));
+    }
+
+    @Test
+    public void testWriteCharsAsUtf8() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            sb.append("abc\u00e9\u20ac\ud83d\ude00");
+        }
+        sb.append('\ud83d').append("x\ude00");
+        String text = sb.toString();
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        StreamOutputContext o = new StreamOutputContext(bos, Charset.forName("UTF-8"));
+        o.write(text);
+        o.write(text.toCharArray(), 1, 4);
+        o.flush();
+
+        byte[] expected = (text + text.substring(1, 5)).getBytes("UTF-8");
+        assertThat(bos.toByteArray(), is(expected));
+        assertThat(Utf8.length(text, 0, text.length()), is(text.getBytes("UTF-8").length));
+    }
 }
@@ -0,0 +1,406 @@
+package com.fasterxml.jackson.dataformat.bencode.corpus;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeFactory;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeGenerator;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeSerializedString;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Deterministic generator of synthetic bencoded workloads, written through {@link BEncodeGenerator}.
+ * The same seed, shape and size always produce the same bytes; output grows until it reaches the requested size, so
+ * documents end up slightly larger than asked for. Memory use does not depend on the size.
+ * <p>
+ * Can be run from the command line: {@code CorpusGenerator <shape> <size>[k|m|g] <seed> <file>}.
+ */
+public class CorpusGenerator {
+    public enum Shape {
+        /**
+         * Torrent with many files, {@code pieces} holding one hash per file.
+         */
+        MULTI_FILE_TORRENT,
+        /**
+         * Single file torrent whose {@code pieces} string takes up almost all of the document, capped at 2 GB.
+         */
+        LARGE_PIECES,
+        /**
+         * Scrape response, its {@code files} dictionary keyed by raw 20 byte info-hashes.
+         */
+        SCRAPE,
+        /**
+         * Extension handshake like dictionaries, each nesting dictionaries down to the configured depth.
+         */
+        NESTED_EXTENSIONS,
+        /**
+         * Stream of root level KRPC queries and responses.
+         */
+        KRPC_STREAM
+    }
+
+    public static final int DEFAULT_NESTING_DEPTH = 64;
+
+    private static final int HASH_LENGTH = 20;
+    private static final int PIECE_LENGTH = 1 << 18;
+    /**
+     * Entries written between checks of the output size.
+     */
+    private static final int CHECK_INTERVAL = 64;
+
+    private static final SerializedString ANNOUNCE = new BEncodeSerializedString("announce");
+    private static final SerializedString COMMENT = new BEncodeSerializedString("comment");
+    private static final SerializedString CREATED_BY = new BEncodeSerializedString("created by");
+    private static final SerializedString CREATION_DATE = new BEncodeSerializedString("creation date");
+    private static final SerializedString INFO = new BEncodeSerializedString("info");
+    private static final SerializedString FILES = new BEncodeSerializedString("files");
+    private static final SerializedString LENGTH = new BEncodeSerializedString("length");
+    private static final SerializedString PATH = new BEncodeSerializedString("path");
+    private static final SerializedString NAME = new BEncodeSerializedString("name");
+    private static final SerializedString PIECE_LENGTH_KEY = new BEncodeSerializedString("piece length");
+    private static final SerializedString PIECES = new BEncodeSerializedString("pieces");
+    private static final SerializedString COMPLETE = new BEncodeSerializedString("complete");
+    private static final SerializedString DOWNLOADED = new BEncodeSerializedString("downloaded");
+    private static final SerializedString INCOMPLETE = new BEncodeSerializedString("incomplete");
+
+    private final long seed;
+    private final int nestingDepth;
+    private final BEncodeFactory factory = new BEncodeFactory();
+
+    public CorpusGenerator(long seed) {
+        this(seed, DEFAULT_NESTING_DEPTH);
+    }
+
+    public CorpusGenerator(long seed, int nestingDepth) {
+        if (nestingDepth < 1) {
+            throw new IllegalArgumentException("nesting depth must be positive");
+        }
+        this.seed = seed;
+        this.nestingDepth = nestingDepth;
+    }
+
+    /**
+     * @return number of bytes written, at least {@code size} unless capped by the shape
+     */
+    public long write(Shape shape, long size, OutputStream out) throws IOException {
+        CountingOutputStream counting = new CountingOutputStream(out);
+        Random random = new Random(seed ^ shape.ordinal());
+        try (BEncodeGenerator gen = factory.createGenerator(counting)) {
+            switch (shape) {
+                case MULTI_FILE_TORRENT:
+                    multiFileTorrent(gen, counting, size, random);
+                    break;
+                case LARGE_PIECES:
+                    largePieces(gen, size, random);
+                    break;
+                case SCRAPE:
+                    scrape(gen, counting, size, random);
+                    break;
+                case NESTED_EXTENSIONS:
+                    nestedExtensions(gen, counting, size, random);
+                    break;
+                default:
+                    krpcStream(gen, counting, size, random);
+            }
+        }
+        out.flush();
+        return counting.count;
+    }
+
+    private static boolean reached(JsonGenerator gen, CountingOutputStream counting, long size, int entries)
+            throws IOException {
+        if (entries % CHECK_INTERVAL != 0) {
+            return false;
+        }
+        gen.flush();
+        return counting.count >= size;
+    }
+
+    private static String word(Random random, int maxLength) {
+        char[] chars = new char[1 + random.nextInt(maxLength)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    private static byte[] bytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void torrentHeader(JsonGenerator gen, Random random) throws IOException {
+        gen.writeFieldName(ANNOUNCE);
+        gen.writeString("http://tracker." + word(random, 12) + ".example/announce");
+        gen.writeFieldName(COMMENT);
+        gen.writeString(word(random, 40));
+        gen.writeFieldName(CREATED_BY);
+        gen.writeString("CorpusGenerator");
+        gen.writeFieldName(CREATION_DATE);
+        gen.writeNumber(1000000000 + random.nextInt(1 << 29));
+    }
+
+    private static void multiFileTorrent(JsonGenerator gen, CountingOutputStream counting, long size, Random random)
+            throws IOException {
+        gen.writeStartObject();
+        torrentHeader(gen, random);
+        gen.writeFieldName(INFO);
+        gen.writeStartObject();
+        gen.writeFieldName(FILES);
+        gen.writeStartArray();
+        // every file adds a piece hash, written after the list
+        long pieces = 0;
+        do {
+            gen.writeStartObject();
+            gen.writeFieldName(LENGTH);
+            gen.writeNumber(1 + (random.nextLong() & 0xffffffffL));
+            gen.writeFieldName(PATH);
+            gen.writeStartArray();
+            for (int depth = random.nextInt(3); depth >= 0; depth--) {
+                gen.writeString(word(random, 16));
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+            pieces++;
+        } while (!reached(gen, counting, size - pieces * HASH_LENGTH, (int) pieces));
+        gen.writeEndArray();
+        gen.writeFieldName(NAME);
+        gen.writeString(word(random, 24));
+        gen.writeFieldName(PIECE_LENGTH_KEY);
+        gen.writeNumber(PIECE_LENGTH);
+        gen.writeFieldName(PIECES);
+        gen.writeBinary(new RandomInputStream(random), (int) Math.min(pieces * HASH_LENGTH, Integer.MAX_VALUE));
+        gen.writeEndObject();
+        gen.writeEndObject();
+    }
+
+    private static void largePieces(JsonGenerator gen, long size, Random random) throws IOException {
+        long pieces = Math.min(Math.max(size / HASH_LENGTH, 1), Integer.MAX_VALUE / HASH_LENGTH);
+        gen.writeStartObject();
+        torrentHeader(gen, random);
+        gen.writeFieldName(INFO);
+        gen.writeStartObject();
+        gen.writeFieldName(LENGTH);
+        gen.writeNumber(pieces * PIECE_LENGTH);
+        gen.writeFieldName(NAME);
+        gen.writeString(word(random, 24) + ".iso");
+        gen.writeFieldName(PIECE_LENGTH_KEY);
+        gen.writeNumber(PIECE_LENGTH);
+        gen.writeFieldName(PIECES);
+        gen.writeBinary(new RandomInputStream(random), (int) (pieces * HASH_LENGTH));
+        gen.writeEndObject();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Info-hashes have to be written in ascending order; they are spread over the key space by giving each one a
+     * slot of its own, sized for the expected number of entries, so none need to be kept in memory.
+     */
+    private static void scrape(BEncodeGenerator gen, CountingOutputStream counting, long size, Random random)
+            throws IOException {
+        // an entry takes about 80 bytes, leave room to reach the size in any case
+        final long slots = Math.max(size / 40, CHECK_INTERVAL);
+        final long slotSize = Long.divideUnsigned(-1L, slots);
+        gen.writeStartObject();
+        gen.writeFieldName(FILES);
+        gen.writeStartObject();
+        int entries = 0;
+        do {
+            byte[] hash = bytes(random, HASH_LENGTH);
+            long prefix = entries * slotSize + Long.remainderUnsigned(random.nextLong(), slotSize);
+            for (int i = 0; i < 8; i++) {
+                hash[i] = (byte) (prefix >>> (56 - 8 * i));
+            }
+            gen.writeFieldName(hash, 0, HASH_LENGTH);
+            gen.writeStartObject();
+            gen.writeFieldName(COMPLETE);
+            gen.writeNumber(random.nextInt(10000));
+            gen.writeFieldName(DOWNLOADED);
+            gen.writeNumber(random.nextInt(1000000));
+            gen.writeFieldName(INCOMPLETE);
+            gen.writeNumber(random.nextInt(1000));
+            gen.writeEndObject();
+            entries++;
+        } while (entries < slots && !reached(gen, counting, size, entries));
+        gen.writeEndObject();
+        gen.writeEndObject();
+    }
+
+    private void nestedExtensions(JsonGenerator gen, CountingOutputStream counting, long size, Random random)
+            throws IOException {
+        gen.writeStartArray();
+        int entries = 0;
+        do {
+            for (int level = 0; level < nestingDepth; level++) {
+                gen.writeStartObject();
+                gen.writeFieldName("m");
+            }
+            gen.writeStartObject();
+            gen.writeNumberField("ut_metadata", 1 + random.nextInt(8));
+            gen.writeNumberField("ut_pex", 1 + random.nextInt(8));
+            gen.writeEndObject();
+            for (int level = 0; level < nestingDepth; level++) {
+                gen.writeNumberField("p", random.nextInt(65536));
+                gen.writeStringField("v", word(random, 12));
+                gen.writeEndObject();
+            }
+            entries++;
+        } while (!reached(gen, counting, size, entries));
+        gen.writeEndArray();
+    }
+
+    private static void krpcStream(JsonGenerator gen, CountingOutputStream counting, long size, Random random)
+            throws IOException {
+        int messages = 0;
+        do {
+            byte[] transaction = bytes(random, 2);
+            gen.writeStartObject();
+            if (random.nextBoolean()) {
+                gen.writeFieldName("a");
+                gen.writeStartObject();
+                gen.writeFieldName("id");
+                gen.writeBinary(bytes(random, HASH_LENGTH));
+                String query;
+                switch (random.nextInt(4)) {
+                    case 0:
+                        query = "ping";
+                        break;
+                    case 1:
+                        query = "find_node";
+                        gen.writeFieldName("target");
+                        gen.writeBinary(bytes(random, HASH_LENGTH));
+                        break;
+                    case 2:
+                        query = "get_peers";
+                        gen.writeFieldName("info_hash");
+                        gen.writeBinary(bytes(random, HASH_LENGTH));
+                        break;
+                    default:
+                        query = "announce_peer";
+                        gen.writeNumberField("implied_port", 1);
+                        gen.writeFieldName("info_hash");
+                        gen.writeBinary(bytes(random, HASH_LENGTH));
+                        gen.writeNumberField("port", random.nextInt(65536));
+                        gen.writeFieldName("token");
+                        gen.writeBinary(bytes(random, 8));
+                }
+                gen.writeEndObject();
+                gen.writeStringField("q", query);
+                gen.writeFieldName("t");
+                gen.writeBinary(transaction);
+                gen.writeStringField("y", "q");
+            } else {
+                gen.writeFieldName("r");
+                gen.writeStartObject();
+                gen.writeFieldName("id");
+                gen.writeBinary(bytes(random, HASH_LENGTH));
+                gen.writeFieldName("nodes");
+                gen.writeBinary(bytes(random, 26 * 8));
+                if (random.nextBoolean()) {
+                    gen.writeFieldName("token");
+                    gen.writeBinary(bytes(random, 8));
+                    gen.writeFieldName("values");
+                    gen.writeStartArray();
+                    for (int i = random.nextInt(8); i >= 0; i--) {
+                        gen.writeBinary(bytes(random, 6));
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndObject();
+                gen.writeFieldName("t");
+                gen.writeBinary(transaction);
+                gen.writeStringField("y", "r");
+            }
+            gen.writeEndObject();
+            messages++;
+        } while (!reached(gen, counting, size, messages));
+    }
+
+    private static final class RandomInputStream extends InputStream {
+        private final Random random;
+
+        RandomInputStream(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public int read() {
+            return random.nextInt(256);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (off == 0 && len == b.length) {
+                random.nextBytes(b);
+            } else {
+                byte[] chunk = new byte[len];
+                random.nextBytes(chunk);
+                System.arraycopy(chunk, 0, b, off, len);
+            }
+            return len;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // the caller owns the stream
+            flush();
+        }
+    }
+
+    /**
+     * @param size number of bytes, optionally followed by k, m or g
+     */
+    public static long parseSize(String size) {
+        String s = size.toLowerCase();
+        int shift = 0;
+        switch (s.charAt(s.length() - 1)) {
+            case 'g':
+                shift += 10;
+            case 'm':
+                shift += 10;
+            case 'k':
+                shift += 10;
+                s = s.substring(0, s.length() - 1);
+        }
+        return Long.parseLong(s) << shift;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("usage: CorpusGenerator <shape> <size>[k|m|g] <seed> <file>");
+            System.exit(1);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[3]), 1 << 16)) {
+            long written = new CorpusGenerator(Long.parseLong(args[2]))
+                    .write(Shape.valueOf(args[0].toUpperCase()), parseSize(args[1]), out);
+            System.out.println(written + " bytes written to " + args[3]);
+        }
+    }
+}
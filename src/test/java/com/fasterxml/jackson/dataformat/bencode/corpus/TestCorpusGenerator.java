@@ -0,0 +1,111 @@
+package com.fasterxml.jackson.dataformat.bencode.corpus;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeFactory;
+import com.fasterxml.jackson.dataformat.bencode.BEncodeMapper;
+import com.fasterxml.jackson.dataformat.bencode.types.Torrent;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestCorpusGenerator {
+    private static final int SIZE = 64 * 1024;
+
+    private static byte[] generate(CorpusGenerator generator, CorpusGenerator.Shape shape, long size)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = generator.write(shape, size, out);
+        assertThat(written, is((long) out.size()));
+        return out.toByteArray();
+    }
+
+    /**
+     * Parsing checks the structure, including key order.
+     */
+    private static int roots(byte[] data) throws IOException {
+        int roots = 0;
+        int depth = 0;
+        try (JsonParser p = new BEncodeFactory().createParser(data)) {
+            JsonToken token;
+            while ((token = p.nextToken()) != null) {
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd() && --depth == 0) {
+                    roots++;
+                }
+            }
+        }
+        return roots;
+    }
+
+    @Test
+    public void testShapes() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator(42);
+        for (CorpusGenerator.Shape shape : CorpusGenerator.Shape.values()) {
+            byte[] data = generate(generator, shape, SIZE);
+            assertTrue(shape + " too small: " + data.length, data.length >= SIZE);
+            assertTrue(shape + " too large: " + data.length, data.length < 2 * SIZE);
+            int roots = roots(data);
+            assertTrue(shape + " roots: " + roots, shape == CorpusGenerator.Shape.KRPC_STREAM ? roots > 100 : roots == 1);
+        }
+    }
+
+    @Test
+    public void testDeterministic() throws Exception {
+        for (CorpusGenerator.Shape shape : CorpusGenerator.Shape.values()) {
+            assertThat(generate(new CorpusGenerator(7), shape, SIZE), is(generate(new CorpusGenerator(7), shape, SIZE)));
+            assertThat(generate(new CorpusGenerator(7), shape, SIZE), not(generate(new CorpusGenerator(8), shape, SIZE)));
+        }
+    }
+
+    @Test
+    public void testTorrentsBind() throws Exception {
+        BEncodeMapper mapper = new BEncodeMapper();
+        CorpusGenerator generator = new CorpusGenerator(1);
+        Torrent multi = mapper.readValue(generate(generator, CorpusGenerator.Shape.MULTI_FILE_TORRENT, SIZE), Torrent.class);
+        assertThat(multi.getInfo().getPieces().length, is(20 * multi.getInfo().getFiles().size()));
+        Torrent single = mapper.readValue(generate(generator, CorpusGenerator.Shape.LARGE_PIECES, SIZE), Torrent.class);
+        assertTrue(single.getInfo().getPieces().length >= SIZE - 20);
+    }
+
+    @Test
+    public void testNestingDepth() throws Exception {
+        byte[] data = generate(new CorpusGenerator(3, 500), CorpusGenerator.Shape.NESTED_EXTENSIONS, 1);
+        int maxDepth = 0;
+        int depth = 0;
+        try (JsonParser p = new BEncodeFactory().createParser(data)) {
+            JsonToken token;
+            while ((token = p.nextToken()) != null) {
+                if (token.isStructStart()) {
+                    maxDepth = Math.max(maxDepth, ++depth);
+                } else if (token.isStructEnd()) {
+                    depth--;
+                }
+            }
+        }
+        // list, nested dictionaries and the innermost one
+        assertThat(maxDepth, is(502));
+    }
+
+    @Test
+    public void testScrapeKeys() throws Exception {
+        Map<?, ?> scrape = new BEncodeMapper().readValue(
+                generate(new CorpusGenerator(5), CorpusGenerator.Shape.SCRAPE, SIZE), Map.class);
+        assertTrue(((Map<?, ?>) scrape.get("files")).size() > SIZE / 100);
+    }
+
+    @Test
+    public void testParseSize() {
+        assertThat(CorpusGenerator.parseSize("1k"), is(1024L));
+        assertThat(CorpusGenerator.parseSize("3G"), is(3L << 30));
+        assertThat(CorpusGenerator.parseSize("100"), is(100L));
+    }
+}
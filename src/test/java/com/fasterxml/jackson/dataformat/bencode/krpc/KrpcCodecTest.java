@@ -0,0 +1,219 @@
+package com.fasterxml.jackson.dataformat.bencode.krpc;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class KrpcCodecTest {
+    private static final Charset LATIN_1 = Charset.forName("ISO-8859-1");
+
+    // examples of BEP 5
+    private static final String PING = "d1:ad2:id20:abcdefghij0123456789e1:q4:ping1:t2:aa1:y1:qe";
+    private static final String PONG = "d1:rd2:id20:mnopqrstuvwxyz123456e1:t2:aa1:y1:re";
+    private static final String FIND_NODE =
+            "d1:ad2:id20:abcdefghij01234567896:target20:mnopqrstuvwxyz123456e1:q9:find_node1:t2:aa1:y1:qe";
+    private static final String PEERS =
+            "d1:rd2:id20:abcdefghij01234567895:token8:aoeusnth6:valuesl6:axje.u6:idhtnmee1:t2:aa1:y1:re";
+    private static final String ERROR = "d1:eli201e23:A Generic Error Ocurrede1:t2:aa1:y1:ee";
+    private static final String ANNOUNCE = "d1:ad2:id20:abcdefghij012345678912:implied_porti1e" +
+            "9:info_hash20:mnopqrstuvwxyz1234564:porti6881e5:token8:aoeusnthe1:q13:announce_peer1:t2:aa1:y1:qe";
+
+    private final KrpcCodec codec = new KrpcCodec();
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(LATIN_1);
+    }
+
+    private static String string(byte[] b, int len) {
+        return new String(b, 0, len, LATIN_1);
+    }
+
+    private KrpcMessage decode(String message) throws JsonParseException {
+        byte[] data = bytes(message);
+        return codec.decode(data, 0, data.length, new KrpcMessage());
+    }
+
+    private String encode(KrpcMessage message) {
+        byte[] out = new byte[512];
+        return string(out, codec.encode(message, out, 0, out.length));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (String message : new String[]{PING, PONG, FIND_NODE, PEERS, ERROR, ANNOUNCE}) {
+            assertThat(encode(decode(message)), is(message));
+        }
+    }
+
+    @Test
+    public void testFields() throws Exception {
+        KrpcMessage ping = decode(PING);
+        assertThat(ping.getType(), is(KrpcMessage.Type.QUERY));
+        assertThat(ping.getMethod(), is(KrpcMessage.Method.PING));
+        assertThat(string(ping.getTransactionId(), ping.getTransactionIdLength()), is("aa"));
+        assertThat(string(ping.getId(), KrpcMessage.ID_LENGTH), is("abcdefghij0123456789"));
+        assertThat(ping.getTarget(), nullValue());
+        assertThat(ping.getVersion(), nullValue());
+        assertThat(ping.getPort(), is(-1));
+
+        KrpcMessage peers = decode(PEERS);
+        assertThat(peers.getType(), is(KrpcMessage.Type.RESPONSE));
+        assertThat(string(peers.getToken(), peers.getTokenLength()), is("aoeusnth"));
+        assertThat(peers.getValues().size(), is(2));
+        assertThat(peers.getValues().getAddress(0), is('a' << 24 | 'x' << 16 | 'j' << 8 | 'e'));
+        assertThat(peers.getValues().getPort(1), is('n' << 8 | 'm'));
+        assertThat(peers.getNodes(), nullValue());
+
+        KrpcMessage error = decode(ERROR);
+        assertThat(error.getType(), is(KrpcMessage.Type.ERROR));
+        assertThat(error.getErrorCode(), is(201));
+        assertThat(string(error.getErrorMessage(), error.getErrorMessageLength()), is("A Generic Error Ocurred"));
+
+        KrpcMessage announce = decode(ANNOUNCE);
+        assertThat(announce.getMethod(), is(KrpcMessage.Method.ANNOUNCE_PEER));
+        assertThat(announce.getPort(), is(6881));
+        assertThat(announce.getImpliedPort(), is(1));
+        assertThat(string(announce.getInfoHash(), KrpcMessage.ID_LENGTH), is("mnopqrstuvwxyz123456"));
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+        byte[] id = bytes("0123456789abcdefghij");
+        KrpcMessage response = new KrpcMessage()
+                .setType(KrpcMessage.Type.RESPONSE)
+                .setTransactionId(0x6161)
+                .setId(id, 0)
+                .addNode(id, 0, 0x7f000001, 6881)
+                .addNode(id, 0, 0x0a000002, 6882);
+        String encoded = encode(response);
+        assertThat(encoded, is("d1:rd2:id20:0123456789abcdefghij5:nodes52:0123456789abcdefghij\u007f\u0000\u0000\u0001" +
+                "\u001a\u00e10123456789abcdefghij\n\u0000\u0000\u0002\u001a\u00e2e1:t2:aa1:y1:re"));
+
+        KrpcMessage decoded = decode(encoded);
+        assertThat(decoded.getNodeCount(), is(2));
+        assertThat(decoded.getNodeAddress(1), is(0x0a000002));
+        assertThat(decoded.getNodePort(0), is(6881));
+        assertThat(decoded.getNodeIdOffset(1), is(KrpcMessage.NODE_ENTRY_LENGTH));
+    }
+
+    @Test
+    public void testUnknownKeys() throws Exception {
+        // BEP 42 ip, client version and unknown argument
+        KrpcMessage message = decode("d2:ip6:abcdef1:rd2:id20:mnopqrstuvwxyz1234565:extrald1:xi1eeee" +
+                "1:t2:aa1:v4:UT011:y1:re");
+        assertThat(string(message.getId(), KrpcMessage.ID_LENGTH), is("mnopqrstuvwxyz123456"));
+        assertThat(string(message.getVersion(), message.getVersionLength()), is("UT01"));
+        assertThat(encode(message), is("d1:rd2:id20:mnopqrstuvwxyz123456e1:t2:aa1:v4:UT011:y1:re"));
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        for (String message : new String[]{
+                // unknown method
+                "d1:ade1:q6:sample1:t2:aa1:y1:qe",
+                // trailing data
+                "d1:t2:aa1:y1:qeX",
+                "d1:t2:aa1:y1:qed1:t2:aa1:y1:qe",
+                // error code beyond int
+                "d1:eli2147483648e5:errore1:t2:aa1:y1:ee",
+                "d1:eli-2147483649e5:errore1:t2:aa1:y1:ee"}) {
+            try {
+                decode(message);
+                fail(message);
+            } catch (JsonParseException e) {
+                // expected
+            }
+        }
+        KrpcMessage message = decode("d1:eli2147483647e5:errore1:t2:aa1:y1:ee");
+        assertThat(message.getErrorCode(), is(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        for (String message : new String[]{
+                "",
+                "l1:y1:qe",
+                "d1:t2:aae",
+                "d1:y1:xe",
+                "d1:ad2:id3:abce1:y1:qe",
+                "d1:rd5:nodes3:abce1:y1:re",
+                "d1:rd4:porti70000ee1:y1:re",
+                "d1:t9:aa1:y1:qe",
+                "d1:t2:aa1:y1:q",
+                "d1:xi12x3e1:y1:qe",
+                "d1:xe1:y1:qe"}) {
+            try {
+                decode(message);
+                fail(message);
+            } catch (JsonParseException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testBuffers() throws Exception {
+        byte[] data = bytes(PING);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 2);
+        direct.put(new byte[]{'x', 'x'}).put(data).flip();
+        direct.position(2);
+        KrpcMessage message = codec.decode(direct, new KrpcMessage());
+        assertThat(message.getMethod(), is(KrpcMessage.Method.PING));
+        assertThat(direct.position(), is(2));
+
+        direct.clear().position(2);
+        assertThat(codec.encode(message, direct), is(data.length));
+        assertThat(direct.position(), is(data.length + 2));
+        direct.flip().position(2);
+        byte[] written = new byte[data.length];
+        direct.get(written);
+        assertThat(written, is(data));
+
+        DatagramPacket packet = new DatagramPacket(new byte[512], 512);
+        codec.encode(decode(PONG), packet);
+        assertThat(packet.getLength(), is(PONG.length()));
+        assertThat(codec.decode(packet, message).getType(), is(KrpcMessage.Type.RESPONSE));
+
+        try {
+            codec.encode(message, new byte[PONG.length() - 1], 0, PONG.length() - 1);
+            fail();
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPool() throws Exception {
+        KrpcMessagePool pool = new KrpcMessagePool(1);
+        KrpcMessage first = pool.acquire();
+        byte[] data = bytes(PEERS);
+        codec.decode(data, 0, data.length, first);
+        pool.release(first);
+        pool.release(new KrpcMessage());
+        assertThat(pool.size(), is(1));
+
+        KrpcMessage reused = pool.acquire();
+        assertThat(reused, sameInstance(first));
+        assertThat(reused.getType(), nullValue());
+        assertThat(reused.getToken(), nullValue());
+        assertThat(reused.getValues(), nullValue());
+        assertThat(pool.size(), is(0));
+
+        // a decode clears what the previous one left behind
+        codec.decode(data, 0, data.length, reused);
+        data = bytes(PING);
+        codec.decode(data, 0, data.length, reused);
+        assertThat(Arrays.equals(bytes(encode(reused)), data), is(true));
+    }
+}
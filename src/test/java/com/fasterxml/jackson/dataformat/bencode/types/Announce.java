@@ -0,0 +1,39 @@
+package com.fasterxml.jackson.dataformat.bencode.types;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.dataformat.bencode.codegen.BEncodeSerializable;
+
+import java.util.List;
+
+@BEncodeSerializable
+@SuppressWarnings("UnusedDeclaration")
+public class Announce {
+    public long interval;
+    @JsonProperty("min interval")
+    public int minInterval;
+    @JsonProperty("tracker id")
+    public String trackerId;
+    public int complete;
+    public int incomplete;
+    public boolean compact;
+    public byte[] peers;
+    public List<String> warnings;
+    @JsonIgnore
+    public String ignored;
+
+    /**
+     * Adds a property to the inherited ones, whose keys sort on either side of it.
+     */
+    @BEncodeSerializable
+    public static class Extended extends Announce {
+        @JsonProperty("external ip")
+        public byte[] externalIp;
+    }
+
+    @BEncodeSerializable
+    public static class Error {
+        @JsonProperty("failure reason")
+        public String failureReason;
+    }
+}
@@ -41,6 +41,9 @@ public class Torrent {
             private List<String> path;
             private long length;
 
+            public File() {
+            }
+
             public File(List<String> path, long length) {
                 this.path = path;
                 this.length = length;